@@ -0,0 +1,93 @@
+package bguspl.set.benchmarks;
+
+import bguspl.set.Config;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds the configurations and the inputs shared by the benchmarks.
+ */
+final class Decks {
+
+    private Decks() {}
+
+    /**
+     * @param shape - the deck shape as "FeatureSize:FeatureCount" (e.g. "3:4" for the classic deck).
+     * @return      - a configuration for the deck, searching sequentially.
+     */
+    static Config config(String shape) {
+        String[] sizes = shape.split(":");
+        Properties properties = new Properties();
+        properties.put("FeatureSize", sizes[0]);
+        properties.put("FeatureCount", sizes[1]);
+        properties.put("ParallelSearchThreshold", "0");
+        properties.put("LogLevel", "OFF");
+        Logger logger = Logger.getLogger("SetBenchmarkLogger");
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        return new Config(logger, properties);
+    }
+
+    static Util util(Config config) {
+        return new UtilImpl(config);
+    }
+
+    /**
+     * Draws distinct random cards. When withSets is false, only cards that complete no set with the ones already drawn
+     * are kept, so the result may be smaller than requested (a set free selection cannot cover a large deck).
+     *
+     * @param config   - the deck configuration.
+     * @param util     - used to test candidate cards.
+     * @param cards    - the number of cards to draw (0 for the full deck).
+     * @param withSets - true to draw freely, false to draw a selection with no sets.
+     * @param random   - the source of randomness.
+     * @return         - the cards drawn.
+     */
+    static List<Integer> draw(Config config, Util util, int cards, boolean withSets, Random random) {
+        int size = cards <= 0 ? config.deckSize : Math.min(cards, config.deckSize);
+        List<Integer> shuffled = new ArrayList<>(config.deckSize);
+        for (int card = 0; card < config.deckSize; ++card)
+            shuffled.add(card);
+        java.util.Collections.shuffle(shuffled, random);
+        if (withSets) return new ArrayList<>(shuffled.subList(0, size));
+
+        List<Integer> drawn = new ArrayList<>(size);
+        int[] buffer = new int[size];
+        for (int card : shuffled) {
+            if (drawn.size() == size) break;
+            for (int i = 0; i < drawn.size(); ++i)
+                buffer[i] = drawn.get(i);
+            if (!util.forEachSetWith(card, buffer, drawn.size(), set -> false)) continue;
+            drawn.add(card);
+        }
+        return drawn;
+    }
+
+    /**
+     * Builds candidate sets, a hitRatio fraction of which are legal.
+     *
+     * @return - the candidates flattened, featureSize cards each.
+     */
+    static int[] candidates(Config config, Util util, int count, double hitRatio, Random random) {
+        int k = config.featureSize;
+        List<int[]> legal = util.findSets(draw(config, util, 0, true, random).subList(0, Math.min(config.deckSize, 64)), Integer.MAX_VALUE);
+        int[] cards = new int[count * k];
+        for (int i = 0; i < count; ++i) {
+            int[] candidate;
+            if (!legal.isEmpty() && random.nextDouble() < hitRatio) {
+                candidate = legal.get(random.nextInt(legal.size()));
+            } else {
+                do candidate = random.ints(k, 0, config.deckSize).toArray(); while (util.testSet(candidate));
+            }
+            System.arraycopy(candidate, 0, cards, i * k, k);
+        }
+        return cards;
+    }
+}
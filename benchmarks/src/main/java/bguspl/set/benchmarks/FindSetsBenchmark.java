@@ -0,0 +1,69 @@
+package bguspl.set.benchmarks;
+
+import bguspl.set.Config;
+import bguspl.set.Util;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures searching for sets in a collection of cards: Util.findSets with count=1 and count=MAX, and the
+ * allocation free containsSet/countSets. Run with "-prof gc" to see the allocation rate of each.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FindSetsBenchmark {
+
+    @Param({"3:4", "3:6", "4:4", "5:3"})
+    public String deck;
+
+    /**
+     * The number of cards searched: a 12 card table, a large table, or the full deck (0).
+     */
+    @Param({"12", "81", "0"})
+    public int cards;
+
+    /**
+     * "hit" draws cards freely, "miss" draws cards with no sets (the worst case for count=1).
+     */
+    @Param({"hit", "miss"})
+    public String mix;
+
+    private Util util;
+    private List<Integer> input;
+    private int[] inputArray;
+
+    @Setup
+    public void setup() {
+        Config config = Decks.config(deck);
+        util = Decks.util(config);
+        input = Decks.draw(config, util, cards, mix.equals("hit"), new Random(42));
+        inputArray = input.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Benchmark
+    public List<int[]> findSetsFirst() {
+        return util.findSets(input, 1);
+    }
+
+    @Benchmark
+    public List<int[]> findSetsAll() {
+        return util.findSets(input, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public boolean containsSet() {
+        return util.containsSet(inputArray, inputArray.length);
+    }
+
+    @Benchmark
+    public int countSets() {
+        return util.countSets(inputArray, inputArray.length);
+    }
+}
@@ -0,0 +1,81 @@
+package bguspl.set.benchmarks;
+
+import bguspl.set.Config;
+import bguspl.set.Util;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures validating single claims: Util.testSet (array and separate cards), Util.testSets (a batch of claims) and
+ * Util.cardsToFeatures. Run with "-prof gc" to see the allocation rate of each.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TestSetBenchmark {
+
+    /**
+     * The number of candidates cycled through (and verified together by testSets).
+     */
+    private static final int CANDIDATES = 1024;
+
+    @Param({"3:4", "3:6", "4:4", "5:3"})
+    public String deck;
+
+    /**
+     * The fraction of the candidates that are legal sets.
+     */
+    @Param({"0.0", "0.5", "1.0"})
+    public double hitRatio;
+
+    private Util util;
+    private int k;
+    private int[] cards;
+    private int[][] candidates;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Config config = Decks.config(deck);
+        util = Decks.util(config);
+        k = config.featureSize;
+        cards = Decks.candidates(config, util, CANDIDATES, hitRatio, new Random(42));
+        candidates = new int[CANDIDATES][];
+        for (int i = 0; i < CANDIDATES; ++i)
+            candidates[i] = java.util.Arrays.copyOfRange(cards, i * k, (i + 1) * k);
+    }
+
+    private int[] nextCandidate() {
+        next = (next + 1) & (CANDIDATES - 1);
+        return candidates[next];
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        return util.testSet(nextCandidate());
+    }
+
+    @Benchmark
+    public boolean testSetSeparateCards() {
+        int[] candidate = nextCandidate();
+        return k == 3 ? util.testSet(candidate[0], candidate[1], candidate[2]) : util.testSet(candidate);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public BitSet testSetsBatch() {
+        return util.testSets(cards, k, CANDIDATES);
+    }
+
+    @Benchmark
+    public void cardsToFeatures(Blackhole blackhole) {
+        blackhole.consume(util.cardsToFeatures(nextCandidate()));
+    }
+}
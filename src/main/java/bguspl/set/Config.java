@@ -36,6 +36,31 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * The number of cards from which set searches are split between the common fork/join pool (non-positive: never)
+     */
+    public final int parallelSearchThreshold;
+
+    /**
+     * Whether to run headless simulations of computer-only games with no cosmetic delays, instead of a single game
+     */
+    public final boolean simulation;
+
+    /**
+     * The number of games to play in a simulation
+     */
+    public final int simulationGames;
+
+    /**
+     * The number of simulated games played at once
+     */
+    public final int simulationParallelGames;
+
+    /**
+     * Whether to run the dealers, players and computer players on virtual threads (Java 21 and up; ignored on older JVMs)
+     */
+    public final boolean virtualThreads;
+
     /**
      * The number of human players in the game.
      */
@@ -52,7 +77,33 @@ public class Config {
     public final int players;
 
     /**
-     * Whether to print out hints to the console or not
+     * The seed of the deck shuffles, for replaying a game (0 for a different game every run)
+     */
+    public final long randomSeed;
+
+    /**
+     * How computer players choose their keys: "Random" presses random slots, "SetSeeking" looks for sets
+     */
+    public final String aiStrategy;
+
+    /**
+     * The probability that a set seeking computer player claims a legal set (when there is one on the table)
+     */
+    public final double aiSkill;
+
+    /**
+     * The mean and standard deviation of a set seeking computer player's reaction time
+     */
+    public final long aiReactionMillis;
+    public final long aiReactionJitterMillis;
+
+    /**
+     * The largest number of keys a computer player presses per second (non-positive: no limit)
+     */
+    public final double aiClicksPerSecond;
+
+    /**
+     * Whether to highlight the hints (the cards of the sets on the table) or not
      */
     public final boolean hints;
 
@@ -197,19 +248,44 @@ public class Config {
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
-
-        // gameplay settings
-        humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
-        computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
+        parallelSearchThreshold = Integer.parseInt(properties.getProperty("ParallelSearchThreshold", "256"));
+
+        // simulation settings
+        simulation = Boolean.parseBoolean(properties.getProperty("Simulation", "False"));
+        simulationGames = Integer.parseInt(properties.getProperty("SimulationGames", "100"));
+        simulationParallelGames = Integer.parseInt(properties.getProperty("SimulationParallelGames",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        if (simulationGames < 1 || simulationParallelGames < 1)
+            logger.severe("invalid simulation games: " + simulationGames + " parallel games: " + simulationParallelGames);
+
+        virtualThreads = Boolean.parseBoolean(properties.getProperty("VirtualThreads", "False"));
+
+        // gameplay settings (a simulation has computer players only, and no delays that are only for the looks or that
+        // pace the computer players)
+        humanPlayers = simulation ? 0 : Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
+        int computers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
+        if (simulation && computers < 1) {
+            logger.severe("invalid simulation computer players: " + computers + " (a simulation needs at least one). Using 1.");
+            computers = 1;
+        }
+        computerPlayers = computers;
         players = humanPlayers + computerPlayers;
 
-        hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
+        randomSeed = Long.parseLong(properties.getProperty("RandomSeed", "0"));
+        aiStrategy = properties.getProperty("AiStrategy", "SetSeeking").trim();
+        aiSkill = Double.parseDouble(properties.getProperty("AiSkill", "0.9"));
+        aiReactionMillis = simulation ? 0 : (long) (Double.parseDouble(properties.getProperty("AiReactionSeconds", "1")) * 1000.0);
+        aiReactionJitterMillis = simulation ? 0 : (long) (Double.parseDouble(properties.getProperty("AiReactionJitterSeconds", "0.3")) * 1000.0);
+        aiClicksPerSecond = simulation ? 0 : Double.parseDouble(properties.getProperty("AiClicksPerSecond", "10"));
+        if (aiSkill < 0 || aiSkill > 1 || aiReactionMillis < 0 || aiReactionJitterMillis < 0)
+            logger.severe("invalid computer player settings: skill: " + aiSkill + " reaction: " + aiReactionMillis + " jitter: " + aiReactionJitterMillis);
+        hints = !simulation && Boolean.parseBoolean(properties.getProperty("Hints", "False"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
-        pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
-        penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
-        tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
-        endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        pointFreezeMillis = simulation ? 0 : (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
+        penaltyFreezeMillis = simulation ? 0 : (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
+        tableDelayMillis = simulation ? 0 : (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+        endGamePauseMillies = simulation ? 0 : (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
 
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
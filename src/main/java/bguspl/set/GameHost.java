@@ -0,0 +1,266 @@
+package bguspl.set;
+
+import bguspl.set.ex.ClaimStats;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * This class hosts any number of independent games in one process. Each game gets its own environment, table, dealer
+ * and players; they share the configuration and the (thread safe) utilities. At most maxRunningGames games are played
+ * at once; the rest wait in a queue, without a thread, for their turn. The dealers, players and computer players of all
+ * games get their threads from the same factory, so with VirtualThreads=True they are all virtual threads. A running
+ * game still holds a thread for its dealer and for each player and computer player for as long as it runs.
+ */
+public class GameHost {
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+
+    /**
+     * Creates the threads of the dealers, players and computer players of all games.
+     */
+    private final ThreadFactory threads;
+
+    private final int maxRunningGames;
+
+    /**
+     * The games started but not running yet, in the order they were started, and the number of running games
+     * (guarded by this host).
+     */
+    private final Queue<Game> waiting = new ArrayDeque<>();
+    private int running;
+    private boolean shutdown;
+
+    private final AtomicInteger nextGameId = new AtomicInteger();
+
+    /**
+     * @param logger          - the logger shared by all games.
+     * @param config          - the configuration shared by all games.
+     * @param util            - the utilities shared by all games.
+     * @param maxRunningGames - the maximal number of games played at once.
+     * @param threads         - creates the threads of the dealers and players of all games.
+     */
+    public GameHost(Logger logger, Config config, Util util, int maxRunningGames, ThreadFactory threads) {
+        if (maxRunningGames < 1)
+            throw new IllegalArgumentException("maxRunningGames must be positive: " + maxRunningGames);
+        this.logger = logger;
+        this.config = config;
+        this.util = util;
+        this.threads = threads;
+        this.maxRunningGames = maxRunningGames;
+    }
+
+    public GameHost(Logger logger, Config config, Util util, int maxRunningGames) {
+        this(logger, config, util, maxRunningGames, playerThreads(config, logger));
+    }
+
+    /**
+     * Creates the thread factory for dealers, players and computer players: virtual threads if the configuration asks for them
+     * and the JVM has them (Java 21 and up), platform threads otherwise.
+     *
+     * @param config - the game configuration.
+     * @param logger - used to warn when virtual threads are not available.
+     * @return       - the thread factory.
+     */
+    public static ThreadFactory playerThreads(Config config, Logger logger) {
+        if (!config.virtualThreads) return Thread::new;
+        try {
+            // looked up reflectively, so the game still builds and runs on older JVMs
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            logger.severe("virtual threads are not available on this JVM, using platform threads instead");
+            return Thread::new;
+        }
+    }
+
+    /**
+     * Creates a new game (that is not started yet).
+     *
+     * @param ui - creates the user interface of the game, given its players (the array is filled after the call).
+     * @return   - the new game.
+     */
+    public Game create(Function<Player[], UserInterface> ui) {
+        return new Game(nextGameId.getAndIncrement(), ui);
+    }
+
+    /**
+     * Stops accepting new games; games already started keep running (or waiting for their turn).
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits for all the started games to finish, after a shutdown.
+     *
+     * @param timeout - the maximal time to wait.
+     * @param unit    - the unit of the timeout.
+     * @return        - true iff all the games finished.
+     */
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!shutdown || running > 0 || !waiting.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Runs the game now if the host has room for it, or queues it otherwise.
+     */
+    private synchronized void admit(Game game) {
+        if (shutdown)
+            throw new RejectedExecutionException("the game host was shut down");
+        if (running < maxRunningGames) {
+            ++running;
+            game.launch();
+        } else
+            waiting.add(game);
+    }
+
+    /**
+     * Called when a game is over: hands its turn to the next waiting game.
+     */
+    private synchronized void finished() {
+        Game next = waiting.poll();
+        if (next != null)
+            next.launch();
+        else {
+            --running;
+            notifyAll();
+        }
+    }
+
+    /**
+     * A single game hosted by the game host.
+     */
+    public class Game {
+
+        public final int id;
+        public final Env env;
+        public final Table table;
+        public final Dealer dealer;
+        public final Player[] players;
+
+        /**
+         * Completed with the results of the game when its dealer is done (null until the game is started).
+         */
+        private volatile CompletableFuture<Result> result;
+
+        private Game(int id, Function<Player[], UserInterface> ui) {
+            this.id = id;
+            this.players = new Player[config.players];
+            this.env = new Env(logger, config, ui.apply(players), util, threads);
+            this.table = new Table(env);
+            this.dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, i < config.humanPlayers);
+        }
+
+        /**
+         * Queues the game to be played as soon as the host has room for it.
+         *
+         * @return - the future results of the game.
+         */
+        public synchronized CompletableFuture<Result> start() {
+            if (result == null) {
+                result = new CompletableFuture<>(); // before the dealer thread may complete it
+                try {
+                    admit(this);
+                } catch (RejectedExecutionException e) {
+                    result = null;
+                    throw e;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Starts the dealer thread of the game (called by the host when it is the game's turn).
+         */
+        private void launch() {
+            Thread thread = threads.newThread(this::play);
+            thread.setName("dealer-" + id);
+            thread.start();
+        }
+
+        private void play() {
+            String name = Thread.currentThread().getName();
+            ThreadLogger.logStart(logger, name);
+            long start = System.currentTimeMillis();
+            try {
+                dealer.run();
+                result().complete(new Result(id, dealer.scores(), dealer.winners(), dealer.stats,
+                        System.currentTimeMillis() - start));
+            } catch (Throwable e) {
+                result().completeExceptionally(e);
+            } finally {
+                ThreadLogger.logStop(logger, name);
+                finished();
+            }
+        }
+
+        /**
+         * Stops the game (its results are still collected).
+         */
+        public void terminate() {
+            dealer.terminate();
+        }
+
+        /**
+         * @return - the future results of the game, or null if it was not started.
+         */
+        public CompletableFuture<Result> result() {
+            return result;
+        }
+    }
+
+    /**
+     * The outcome of a game.
+     */
+    public static class Result {
+
+        public final int gameId;
+
+        /**
+         * The score of each player, by player id.
+         */
+        public final int[] scores;
+
+        /**
+         * The ids of the players with the top score.
+         */
+        public final int[] winners;
+
+        /**
+         * The set claims judged in the game.
+         */
+        public final ClaimStats claims;
+
+        public final long durationMillis;
+
+        public Result(int gameId, int[] scores, int[] winners, ClaimStats claims, long durationMillis) {
+            this.gameId = gameId;
+            this.scores = scores;
+            this.winners = winners;
+            this.claims = claims;
+            this.durationMillis = durationMillis;
+        }
+    }
+}
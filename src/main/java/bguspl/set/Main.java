@@ -1,8 +1,6 @@
 package bguspl.set;
 
-import bguspl.set.ex.Dealer;
 import bguspl.set.ex.Player;
-import bguspl.set.ex.Table;
 
 import java.io.File;
 import java.io.IOException;
@@ -10,6 +8,7 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.*;
 
 /**
@@ -17,7 +16,7 @@ import java.util.logging.*;
  */
 public class Main {
 
-    private static Dealer dealer;
+    private static GameHost.Game game;
     private static Thread mainThread;
 
     private static boolean xButtonPressed = false;
@@ -26,7 +25,7 @@ public class Main {
     public static void xButtonPressed() throws InterruptedException {
         if (logger != null) logger.severe("exit button pressed");
         xButtonPressed = true;
-        if (dealer != null) dealer.terminate();
+        if (game != null) game.terminate();
         mainThread.join();
     }
 
@@ -45,36 +44,25 @@ public class Main {
         Config config = new Config(logger, "config.properties");
         Util util = new UtilImpl(config);
 
-        Player[] players = new Player[config.players];
-        UserInterface ui = null;
-        try {
-            ui = new UserInterfaceSwing(logger, config, players);
-        } catch (UnsupportedOperationException | IllegalArgumentException e) {
-            logger.severe("error creating swing user interface: " + e.getMessage());
-            logger.severe("will try to run without user interface");
-            if (config.humanPlayers > 0)
-                logger.severe("warning: running with human players with no user interface");
+        if (config.simulation) {
+            simulate(config, util);
+            return;
         }
-        ui = new UserInterfaceDecorator(logger, util, ui);
-
-        Env env = new Env(logger, config, ui, util);
 
-        // create the game entities
-        Table table = new Table(env);
-        dealer = new Dealer(env, table, players);
-        for (int i = 0; i < players.length; i++)
-            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
-
-        // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
-        dealerThread.startWithLog();
+        GameHost host = new GameHost(logger, config, util, 1);
+        game = host.create(players -> createUserInterface(logger, config, util, players));
+        Env env = game.env;
 
         try {
             // shutdown stuff
-            dealerThread.joinWithLog();
+            game.start().get();
             if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
-        } catch (InterruptedException ignored) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.log(Level.SEVERE, "the game failed", e.getCause());
         } finally {
+            host.shutdown();
             logger.severe("thanks for playing... it was fun!");
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
@@ -83,6 +71,35 @@ public class Main {
         }
     }
 
+    private static void simulate(Config config, Util util) {
+        try {
+            Simulation.Report report = new Simulation(logger, config, util).run();
+            logger.severe(report.toString());
+            System.out.println(report);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.severe("simulation interrupted");
+        } catch (ExecutionException e) {
+            logger.log(Level.SEVERE, "simulation failed", e.getCause());
+        } finally {
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            for (Handler h : logger.getHandlers()) h.flush();
+        }
+    }
+
+    private static UserInterface createUserInterface(Logger logger, Config config, Util util, Player[] players) {
+        UserInterface ui = null;
+        try {
+            ui = new UserInterfaceSwing(logger, config, players);
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            logger.severe("error creating swing user interface: " + e.getMessage());
+            logger.severe("will try to run without user interface");
+            if (config.humanPlayers > 0)
+                logger.severe("warning: running with human players with no user interface");
+        }
+        return new UserInterfaceDecorator(logger, util, ui);
+    }
+
     private static Logger initLogger() {
 
         //just to make our log file nicer :)
@@ -0,0 +1,146 @@
+package bguspl.set;
+
+import java.util.Arrays;
+
+/**
+ * This class holds every legal set in the deck, built once per configuration, with an inverted index from each card
+ * to the sets that include it. Games use a Tracker to follow which sets can still be collected as cards leave play.
+ */
+public class SetCatalog {
+
+    /**
+     * The largest number of card combinations the catalog is willing to walk when it is built.
+     */
+    public static final long MAX_COMBINATIONS = 10_000_000L;
+
+    /**
+     * The number of cards in each set (i.e. config.featureSize).
+     */
+    private final int cardsPerSet;
+
+    /**
+     * The cards of all sets, flattened: set s is cards[s * cardsPerSet] to cards[(s + 1) * cardsPerSet - 1].
+     */
+    private final int[] cards;
+
+    /**
+     * For each card id, the indices of the sets that include it.
+     */
+    private final int[][] setsOfCard;
+
+    private SetCatalog(int cardsPerSet, int[] cards, int[][] setsOfCard) {
+        this.cardsPerSet = cardsPerSet;
+        this.cards = cards;
+        this.setsOfCard = setsOfCard;
+    }
+
+    /**
+     * Builds the catalog of the full deck described by the configuration.
+     *
+     * @param config - the game configuration.
+     * @param util   - used to enumerate the sets.
+     * @return       - the catalog, or null if the deck is too large to enumerate (see MAX_COMBINATIONS).
+     */
+    public static SetCatalog build(Config config, Util util) {
+        if (combinations(config.deckSize, config.featureSize - 1) > MAX_COMBINATIONS) return null;
+
+        int k = config.featureSize;
+        int[] deck = new int[config.deckSize];
+        Arrays.setAll(deck, i -> i);
+        int[][] buffer = {new int[1024 * k]};
+        int[] size = {0};
+        int[] setsPerCard = new int[config.deckSize];
+        util.forEachSet(deck, deck.length, set -> {
+            if ((size[0] + 1) * k > buffer[0].length) buffer[0] = Arrays.copyOf(buffer[0], buffer[0].length * 2);
+            System.arraycopy(set, 0, buffer[0], size[0]++ * k, k);
+            for (int card : set)
+                ++setsPerCard[card];
+            return true;
+        });
+
+        int[] cards = Arrays.copyOf(buffer[0], size[0] * k);
+        int[][] setsOfCard = new int[config.deckSize][];
+        for (int card = 0; card < setsOfCard.length; ++card)
+            setsOfCard[card] = new int[setsPerCard[card]];
+        int[] filled = new int[config.deckSize];
+        for (int set = 0; set < size[0]; ++set)
+            for (int i = 0; i < k; ++i) {
+                int card = cards[set * k + i];
+                setsOfCard[card][filled[card]++] = set;
+            }
+        return new SetCatalog(k, cards, setsOfCard);
+    }
+
+    private static long combinations(int n, int r) {
+        long result = 1;
+        for (int i = 0; i < r; ++i) {
+            result = result * (n - i) / (i + 1);
+            if (result > MAX_COMBINATIONS) break;
+        }
+        return result;
+    }
+
+    /**
+     * @return - the number of legal sets in the deck.
+     */
+    public int size() {
+        return cards.length / cardsPerSet;
+    }
+
+    /**
+     * @return - a new tracker, in which every card of the deck is still in play.
+     */
+    public Tracker newTracker() {
+        return new Tracker();
+    }
+
+    /**
+     * Follows which sets of the catalog can still be collected in a single game. Not thread safe: it should be
+     * updated and queried by the dealer thread only.
+     */
+    public class Tracker {
+
+        /**
+         * For each set, the number of its cards that left play.
+         */
+        private final int[] missing = new int[size()];
+
+        /**
+         * Whether each card left play.
+         */
+        private final boolean[] discarded = new boolean[setsOfCard.length];
+
+        /**
+         * The number of sets none of whose cards left play.
+         */
+        private int available = size();
+
+        private Tracker() {}
+
+        /**
+         * Marks a card as out of play (e.g. it was collected as part of a set), in O(number of sets it is in).
+         *
+         * @param card - the card id.
+         */
+        public void discard(int card) {
+            if (discarded[card]) return;
+            discarded[card] = true;
+            for (int set : setsOfCard[card])
+                if (missing[set]++ == 0) --available;
+        }
+
+        /**
+         * @return - the number of sets that can still be collected from the cards in play.
+         */
+        public int availableSets() {
+            return available;
+        }
+
+        /**
+         * @return - true iff at least one set can still be collected from the cards in play.
+         */
+        public boolean hasAvailableSet() {
+            return available > 0;
+        }
+    }
+}
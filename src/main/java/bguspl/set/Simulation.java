@@ -0,0 +1,122 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class plays headless computer-only games back to back, as fast as the engine allows, and reports its
+ * throughput. It is used for capacity planning and to catch performance regressions.
+ */
+public class Simulation {
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+
+    public Simulation(Logger logger, Config config, Util util) {
+        this.logger = logger;
+        this.config = config;
+        this.util = util;
+    }
+
+    /**
+     * Plays config.simulationGames games, config.simulationParallelGames at a time.
+     *
+     * @return - the throughput and claim latencies of the games.
+     */
+    public Report run() throws InterruptedException, ExecutionException {
+        // the games only log warnings: logging every move would measure the log file instead of the engine
+        Logger gameLogger = Logger.getLogger(logger.getName() + ".simulation");
+        gameLogger.setLevel(Level.WARNING);
+
+        GameHost host = new GameHost(gameLogger, config, util, config.simulationParallelGames);
+        Semaphore running = new Semaphore(config.simulationParallelGames);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<GameHost.Result>[] results = new CompletableFuture[config.simulationGames];
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < results.length; ++i) {
+                running.acquire(); // create the next game only when it can start (games are not small)
+                results[i] = host.create(players -> new HeadlessUserInterface()).start();
+                results[i].whenComplete((result, error) -> running.release());
+            }
+            CompletableFuture.allOf(results).get();
+        } finally {
+            host.shutdown();
+            host.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long sets = 0, claims = 0;
+        for (CompletableFuture<GameHost.Result> result : results) {
+            GameHost.Result game = result.get();
+            sets += game.claims.sets();
+            claims += game.claims.claims();
+        }
+        long[] latencies = new long[Math.toIntExact(claims)];
+        int from = 0;
+        for (CompletableFuture<GameHost.Result> result : results) {
+            long[] gameLatencies = result.get().claims.latencies();
+            System.arraycopy(gameLatencies, 0, latencies, from, gameLatencies.length);
+            from += gameLatencies.length;
+        }
+        Arrays.sort(latencies);
+        return new Report(results.length, elapsed, sets, claims, latencies);
+    }
+
+    /**
+     * The outcome of a simulation.
+     */
+    public static class Report {
+
+        public final int games;
+        public final long elapsedNanos;
+        public final long sets;
+        public final long claims;
+
+        /**
+         * The time from each claim to its verdict, in nanoseconds, sorted.
+         */
+        private final long[] latencies;
+
+        Report(int games, long elapsedNanos, long sets, long claims, long[] latencies) {
+            this.games = games;
+            this.elapsedNanos = elapsedNanos;
+            this.sets = sets;
+            this.claims = claims;
+            this.latencies = latencies;
+        }
+
+        /**
+         * @param count - a number of events.
+         * @return      - the number of events per second of the simulation.
+         */
+        public double perSecond(long count) {
+            return count * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        /**
+         * @param percentile - between 0 and 100.
+         * @return           - the claim latency at that percentile, in nanoseconds (0 if no claims were made).
+         */
+        public long latencyPercentile(double percentile) {
+            if (latencies.length == 0) return 0;
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("simulated %d games in %.2f s: %.2f games/s, %.1f sets/s, %.1f claims/s (%d sets of %d claims)%n" +
+                            "claim latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+                    games, elapsedNanos / 1e9, perSecond(games), perSecond(sets), perSecond(claims), sets, claims,
+                    latencyPercentile(50) / 1e6, latencyPercentile(90) / 1e6, latencyPercentile(99) / 1e6,
+                    latencyPercentile(100) / 1e6);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package bguspl.set;
 
+import java.util.BitSet;
+
 /**
  * This interface contains all methods used to display the graphical user interface.
  */
@@ -18,6 +20,33 @@ public interface UserInterface {
      */
     void removeCard(int slot);
 
+    /**
+     * Draw the card images of several cards at once, refreshing the display a single time.
+     * @param cards - the card ids (the first count entries).
+     * @param slots - the slot number of each card.
+     * @param count - the number of cards.
+     */
+    default void placeCards(int[] cards, int[] slots, int count) {
+        for (int i = 0; i < count; i++)
+            placeCard(cards[i], slots[i]);
+    }
+
+    /**
+     * Draw an empty card image in several slots at once, refreshing the display a single time.
+     * @param slots - the slot numbers (the first count entries).
+     * @param count - the number of slots.
+     */
+    default void removeCards(int[] slots, int count) {
+        for (int i = 0; i < count; i++)
+            removeCard(slots[i]);
+    }
+
+    /**
+     * Highlight the slots of the cards that are part of a legal set (and only them).
+     * @param slots - the slots to highlight.
+     */
+    default void setHints(BitSet slots) {}
+
     /**
      * Draw a player name text in the specified slot.
      * @param player - the card id.
@@ -1,6 +1,7 @@
 package bguspl.set;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -33,6 +34,27 @@ public class UserInterfaceDecorator implements UserInterface {
         if (ui != null) ui.removeCard(slot);
     }
 
+    @Override
+    public void placeCards(int[] cards, int[] slots, int count) {
+        logger.severe("placing cards " + Arrays.toString(Arrays.copyOf(cards, count)) + " in slots " + Arrays.toString(Arrays.copyOf(slots, count)));
+        util.spin();
+        if (ui != null) ui.placeCards(cards, slots, count);
+    }
+
+    @Override
+    public void removeCards(int[] slots, int count) {
+        logger.severe("removing cards from slots " + Arrays.toString(Arrays.copyOf(slots, count)));
+        util.spin();
+        if (ui != null) ui.removeCards(slots, count);
+    }
+
+    @Override
+    public void setHints(BitSet slots) {
+        logger.severe("highlighting hints in slots " + slots);
+        util.spin();
+        if (ui != null) ui.setHints(slots);
+    }
+
     @Override
     public void placeToken(int player, int slot) {
         logger.severe("player " + (player + 1) + " placing token on slot " + slot);
@@ -7,6 +7,7 @@ import java.awt.*;
 import java.io.FileNotFoundException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -164,6 +165,28 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             repaint();
         }
 
+        private void placeCards(int[] cards, int[] slots, int count) {
+            for (int i = 0; i < count; i++)
+                grid[slots[i] / config.columns][slots[i] % config.columns] = deck[cards[i]];
+            validate();
+            repaint();
+        }
+
+        private void removeCards(int[] slots, int count) {
+            for (int i = 0; i < count; i++)
+                grid[slots[i] / config.columns][slots[i] % config.columns] = emptyCard;
+            validate();
+            repaint();
+        }
+
+        private void setHints(BitSet slots) {
+            for (int slot = 0; slot < config.tableSize; slot++)
+                tokenText[slot / config.columns][slot % config.columns].setBorder(slots.get(slot)
+                        ? BorderFactory.createLineBorder(Color.orange, 4)
+                        : BorderFactory.createLineBorder(Color.black));
+            repaint();
+        }
+
         private void placeToken(int player, int slot) {
             int row = slot / config.columns;
             int column = slot % config.columns;
@@ -284,6 +307,21 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         gamePanel.removeCard(slot);
     }
 
+    @Override
+    public void placeCards(int[] cards, int[] slots, int count) {
+        gamePanel.placeCards(cards, slots, count);
+    }
+
+    @Override
+    public void removeCards(int[] slots, int count) {
+        gamePanel.removeCards(slots, count);
+    }
+
+    @Override
+    public void setHints(BitSet slots) {
+        gamePanel.setHints(slots);
+    }
+
     @Override
     public void placeToken(int player, int slot) {
         gamePanel.placeToken(player, slot);
@@ -1,5 +1,8 @@
 package bguspl.set;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -31,6 +34,33 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Checks if three cards form a legal set, without allocating an array for them.
+     *
+     * @param card1 - the first card.
+     * @param card2 - the second card.
+     * @param card3 - the third card.
+     * @return - true iff the three cards form a legal set.
+     */
+    default boolean testSet(int card1, int card2, int card3) {
+        return testSet(new int[]{card1, card2, card3});
+    }
+
+    /**
+     * Checks many candidate sets in one pass.
+     *
+     * @param cards       - the cards of all candidates, flattened: candidate i starts at cards[i * cardsPerSet].
+     * @param cardsPerSet - the number of cards in each candidate.
+     * @param count       - the number of candidates.
+     * @return            - a bitset in which bit i is set iff candidate i is a legal set.
+     */
+    default BitSet testSets(int[] cards, int cardsPerSet, int count) {
+        BitSet valid = new BitSet(count);
+        for (int i = 0; i < count; ++i)
+            if (testSet(Arrays.copyOfRange(cards, i * cardsPerSet, (i + 1) * cardsPerSet))) valid.set(i);
+        return valid;
+    }
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      *
@@ -40,6 +70,110 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * A callback receiving the sets found by forEachSet, one at a time. It may run other searches of the same Util.
+     */
+    @FunctionalInterface
+    interface SetVisitor {
+
+        /**
+         * @param set - the card ids of a legal set (the array may be reused once this method returns).
+         * @return    - true to continue searching, false to stop.
+         */
+        boolean visit(int[] set);
+    }
+
+    /**
+     * Lazily enumerates the sets in the given cards, stopping as soon as the visitor asks to.
+     *
+     * @param cards   - an array of card ids.
+     * @param length  - the number of cards to search from the start of the array.
+     * @param visitor - the callback receiving each set found.
+     * @return        - false iff the visitor stopped the enumeration.
+     */
+    default boolean forEachSet(int[] cards, int length, SetVisitor visitor) {
+        List<Integer> deck = new ArrayList<>(length);
+        for (int i = 0; i < length; ++i)
+            deck.add(cards[i]);
+        return forEachSet(deck, visitor);
+    }
+
+    /**
+     * Lazily enumerates the sets in the given collection of cards (see forEachSet above).
+     */
+    default boolean forEachSet(List<Integer> deck, SetVisitor visitor) {
+        for (int[] set : findSets(deck, Integer.MAX_VALUE))
+            if (!visitor.visit(set)) return false;
+        return true;
+    }
+
+    /**
+     * Lazily enumerates the sets that the given card forms with the given cards, i.e. only the sets that include it.
+     * This is the incremental form of forEachSet, for when a single card joins a collection that was already searched.
+     *
+     * @param card    - the card every set must include (should not appear in cards).
+     * @param cards   - an array of card ids.
+     * @param length  - the number of cards to search from the start of the array.
+     * @param visitor - the callback receiving each set found.
+     * @return        - false iff the visitor stopped the enumeration.
+     */
+    default boolean forEachSetWith(int card, int[] cards, int length, SetVisitor visitor) {
+        int[] all = Arrays.copyOf(cards, length + 1);
+        all[length] = card;
+        return forEachSet(all, length + 1, set -> {
+            for (int member : set)
+                if (member == card) return visitor.visit(set);
+            return true;
+        });
+    }
+
+    /**
+     * Checks if there is at least one set in the given cards, without building any result arrays.
+     *
+     * @param cards  - an array of card ids.
+     * @param length - the number of cards to search from the start of the array.
+     * @return       - true iff the cards contain a legal set.
+     */
+    default boolean containsSet(int[] cards, int length) {
+        return !forEachSet(cards, length, set -> false);
+    }
+
+    /**
+     * Checks if there is at least one set in the given collection of cards (see containsSet above).
+     */
+    default boolean containsSet(List<Integer> deck) {
+        return !forEachSet(deck, set -> false);
+    }
+
+    /**
+     * Counts the sets in the given cards, without building any result arrays.
+     *
+     * @param cards  - an array of card ids.
+     * @param length - the number of cards to search from the start of the array.
+     * @return       - the number of legal sets in the cards.
+     */
+    default int countSets(int[] cards, int length) {
+        int[] count = {0};
+        forEachSet(cards, length, set -> ++count[0] > 0);
+        return count[0];
+    }
+
+    /**
+     * Counts the sets in the given collection of cards (see countSets above).
+     */
+    default int countSets(List<Integer> deck) {
+        int[] count = {0};
+        forEachSet(deck, set -> ++count[0] > 0);
+        return count[0];
+    }
+
+    /**
+     * Returns the catalog of all legal sets in the deck. It is built on first use and shared afterwards.
+     *
+     * @return - the catalog, or null if the deck is too large to catalog.
+     */
+    SetCatalog catalog();
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
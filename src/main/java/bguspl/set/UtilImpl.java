@@ -1,10 +1,16 @@
 package bguspl.set;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The implementation of the UserInterface interface.
@@ -13,48 +19,70 @@ public class UtilImpl implements Util {
 
     private final Config config;
 
+    /**
+     * The features of every card in the deck, precomputed once: features[card * featureCount + i] is feature i of card.
+     */
+    private final int[] features;
+
+    /**
+     * Per thread membership table of the cards being searched: the position of each card id (-1 if absent).
+     * A search takes the table for its duration (leaving null), so a search nested in a visitor gets a fresh one.
+     */
+    private final ThreadLocal<int[]> positions;
+
+    /**
+     * The catalog of all sets in the deck (built on first use).
+     */
+    private volatile SetCatalog catalog;
+    private volatile boolean catalogBuilt;
+
     public UtilImpl(Config config) {
         this.config = config;
-    }
-
-    private void cardToFeatures(int card, int[] features) {
-        for (int i = config.featureCount - 1; i >= 0; --i) {
-            features[i] = card % config.featureSize;
-            card /= config.featureSize;
+        this.features = new int[config.deckSize * config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card) {
+            int id = card;
+            for (int i = config.featureCount - 1; i >= 0; --i) {
+                features[card * config.featureCount + i] = id % config.featureSize;
+                id /= config.featureSize;
+            }
         }
+        this.positions = ThreadLocal.withInitial(this::newPositions);
     }
 
     @Override
     public int[] cardToFeatures(int card) {
-        int[] features = new int[config.featureCount];
-        cardToFeatures(card, features);
-        return features;
+        int offset = card * config.featureCount;
+        return Arrays.copyOfRange(features, offset, offset + config.featureCount);
     }
 
     @Override
     public int[][] cardsToFeatures(int[] cards) {
-        int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        int[][] features = new int[cards.length][];
+        for (int i = 0; i < cards.length; ++i)
+            features[i] = cardToFeatures(cards[i]);
         return features;
     }
 
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
-        for (int i = 0; i < config.featureCount; ++i) {
+        return testSet(cards, 0, cards.length);
+    }
+
+    private boolean testSet(int[] cards, int from, int length) {
+        if (length == 0) return false;
+        int count = config.featureCount;
+        for (int i = 0; i < count; ++i) {
             boolean sameSame = true, butDifferent = true;
+            int first = features[cards[from] * count + i];
 
             // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
-                    sameSame = false;
-                    break;
-                }
+            for (int j = 1; j < length && sameSame; ++j)
+                sameSame = features[cards[from + j] * count + i] == first;
 
             // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
+            for (int j = 0; j < length && butDifferent; ++j)
+                for (int k = j + 1; k < length; ++k)
+                    if (features[cards[from + j] * count + i] == features[cards[from + k] * count + i]) {
                         butDifferent = false;
                         break;
                     }
@@ -64,11 +92,349 @@ public class UtilImpl implements Util {
         return true;
     }
 
+    @Override
+    public BitSet testSets(int[] cards, int cardsPerSet, int count) {
+        BitSet valid = new BitSet(count);
+        int features = config.featureCount;
+        if (cardsPerSet == 3 && config.featureSize == 3) {
+            // branch free: a feature is legal iff the sum of its three values is divisible by 3
+            for (int set = 0; set < count; ++set) {
+                int a = cards[3 * set] * features, b = cards[3 * set + 1] * features, c = cards[3 * set + 2] * features;
+                int illegal = 0;
+                for (int i = 0; i < features; ++i)
+                    illegal |= (this.features[a + i] + this.features[b + i] + this.features[c + i]) % 3;
+                if (illegal == 0) valid.set(set);
+            }
+            return valid;
+        }
+        for (int set = 0; set < count; ++set)
+            if (testSet(cards, set * cardsPerSet, cardsPerSet)) valid.set(set);
+        return valid;
+    }
+
+    @Override
+    public boolean testSet(int card1, int card2, int card3) {
+        int count = config.featureCount;
+        int a = card1 * count, b = card2 * count, c = card3 * count;
+        if (config.featureSize == 3) {
+            // three values are all the same or all different iff their sum is divisible by 3
+            for (int i = 0; i < count; ++i)
+                if ((features[a + i] + features[b + i] + features[c + i]) % 3 != 0) return false;
+            return true;
+        }
+        for (int i = 0; i < count; ++i) {
+            int x = features[a + i], y = features[b + i], z = features[c + i];
+            boolean sameSame = x == y && y == z;
+            boolean butDifferent = x != y && y != z && x != z;
+            if (sameSame == butDifferent) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the card that completes the given cards to a legal set. A set is completed feature by feature: if all
+     * given cards share a feature value, the missing card must have it too; if they all differ, the missing card must
+     * have the one remaining value; otherwise no card completes them.
+     *
+     * @param cards  - an array starting with config.featureSize - 1 distinct card ids.
+     * @param length - the number of cards to complete (i.e. config.featureSize - 1).
+     * @return       - the id of the completing card, or -1 if there is none.
+     */
+    private int completeSet(int[] cards, int length) {
+        int size = config.featureSize, count = config.featureCount;
+        int missing = 0;
+        for (int i = 0; i < count; ++i) {
+            int value;
+            if (size == 3) {
+                // for the classic game the missing value is simply (-a-b) mod 3
+                value = (6 - features[cards[0] * count + i] - features[cards[1] * count + i]) % 3;
+            } else {
+                int first = features[cards[0] * count + i], sum = 0;
+                boolean sameSame = true, butDifferent = true;
+                for (int j = 0; j < length; ++j) {
+                    int feature = features[cards[j] * count + i];
+                    sameSame &= feature == first;
+                    for (int k = 0; k < j && butDifferent; ++k)
+                        butDifferent = feature != features[cards[k] * count + i];
+                    sum += feature;
+                }
+                if (sameSame) value = first;
+                else if (butDifferent) value = size * (size - 1) / 2 - sum;
+                else return -1;
+            }
+            missing = missing * size + value;
+        }
+        return missing;
+    }
+
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        if (config.featureSize < 3) return testAllCombinations(deck, count); // the completion is not unique
+        LinkedList<int[]> sets = new LinkedList<>();
+        if (count <= 0) return sets;
+
+        int[] cards = toArray(deck);
+        if (isParallel(cards.length)) {
+            Queue<int[]> found = new ConcurrentLinkedQueue<>();
+            new ParallelSearch(cards, count, found).run();
+            sets.addAll(found);
+            return sets;
+        }
+        forEachSet(cards, cards.length, set -> {
+            sets.add(sorted(set));
+            return sets.size() < count;
+        });
+        return sets;
+    }
+
+    @Override
+    public boolean forEachSet(int[] cards, int length, SetVisitor visitor) {
+        if (config.featureSize < 3) {
+            for (int[] set : testAllCombinations(toList(cards, length), Integer.MAX_VALUE))
+                if (!visitor.visit(set)) return false;
+            return true;
+        }
+        int[] position = takePositions();
+        for (int i = 0; i < length; ++i)
+            position[cards[i]] = i;
+        try {
+            return completeCombinations(cards, length, position, 0, length, visitor);
+        } finally {
+            for (int i = 0; i < length; ++i)
+                position[cards[i]] = -1;
+            positions.set(position);
+        }
+    }
+
+    @Override
+    public boolean forEachSetWith(int card, int[] cards, int length, SetVisitor visitor) {
+        int r = config.featureSize - 2; // the cards enumerated besides the given one
+        if (r < 1) return Util.super.forEachSetWith(card, cards, length, visitor);
+        int[] position = takePositions();
+        for (int i = 0; i < length; ++i)
+            position[cards[i]] = i;
+        try {
+            int[] combination = new int[r];
+            int[] set = new int[r + 2];
+            set[0] = card;
+            for (int i = 0; i < r; ++i)
+                combination[i] = i;
+
+            while (combination[r - 1] < length) {
+                for (int i = 0; i < r; ++i)
+                    set[i + 1] = cards[combination[i]];
+
+                // each set is reported once: from its cards that come first in the array
+                int missing = completeSet(set, r + 1);
+                if (missing >= 0 && position[missing] > combination[r - 1]) {
+                    set[r + 1] = missing;
+                    if (!visitor.visit(set)) return false;
+                }
+
+                // generate next combination in lexicographic order
+                int t = r - 1;
+                while (t != 0 && combination[t] == length - r + t) --t;
+                combination[t]++;
+                for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+            }
+            return true;
+        } finally {
+            for (int i = 0; i < length; ++i)
+                position[cards[i]] = -1;
+            positions.set(position);
+        }
+    }
+
+    /**
+     * @return - this thread's membership table, or a fresh one if a search on this thread is already using it (the
+     *           caller hands it back, all -1 again, with positions.set).
+     */
+    private int[] takePositions() {
+        int[] position = positions.get();
+        if (position == null)
+            return newPositions();
+        positions.set(null);
+        return position;
+    }
+
+    private int[] newPositions() {
+        int[] position = new int[config.deckSize];
+        Arrays.fill(position, -1);
+        return position;
+    }
+
+    @Override
+    public boolean forEachSet(List<Integer> deck, SetVisitor visitor) {
+        return forEachSet(toArray(deck), deck.size(), visitor);
+    }
+
+    @Override
+    public boolean containsSet(int[] cards, int length) {
+        return countSets(cards, length, 1) > 0;
+    }
+
+    @Override
+    public boolean containsSet(List<Integer> deck) {
+        return containsSet(toArray(deck), deck.size());
+    }
+
+    @Override
+    public int countSets(int[] cards, int length) {
+        return countSets(cards, length, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int countSets(List<Integer> deck) {
+        return countSets(toArray(deck), deck.size());
+    }
+
+    private int countSets(int[] cards, int length, int limit) {
+        if (config.featureSize >= 3 && isParallel(length))
+            return new ParallelSearch(Arrays.copyOf(cards, length), limit, null).run();
+        int[] found = {0};
+        forEachSet(cards, length, set -> ++found[0] < limit);
+        return found[0];
+    }
+
+    private boolean isParallel(int length) {
+        return config.parallelSearchThreshold > 0 && length >= config.parallelSearchThreshold;
+    }
+
+    private static int[] toArray(List<Integer> deck) {
+        int[] cards = new int[deck.size()];
+        int i = 0;
+        for (int card : deck)
+            cards[i++] = card;
+        return cards;
+    }
+
+    private static List<Integer> toList(int[] cards, int length) {
+        List<Integer> deck = new ArrayList<>(length);
+        for (int i = 0; i < length; ++i)
+            deck.add(cards[i]);
+        return deck;
+    }
+
+    private static int[] sorted(int[] set) {
+        int[] copy = set.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    /**
+     * Walks the combinations of config.featureSize - 1 cards whose first card is at a position in [first, last), and
+     * reports every set completed by them. Each set is reported once: from the cards that come first in the deck.
+     *
+     * @param cards    - the cards to search.
+     * @param n        - the number of cards to search.
+     * @param position - the position of each card id in cards (-1 if absent).
+     * @param first    - the lowest position of the first card of a combination.
+     * @param last     - the position after the highest position of the first card of a combination.
+     * @param visitor  - receives each set found (the array is reused) and returns false to stop the search.
+     * @return         - false iff the search was stopped by the visitor.
+     */
+    private boolean completeCombinations(int[] cards, int n, int[] position, int first, int last, SetVisitor visitor) {
+        int r = config.featureSize - 1;
+        int[] combination = new int[r];
+        int[] set = new int[r + 1];
+        for (int i = 0; i < r; ++i)
+            combination[i] = first + i;
+
+        while (combination[0] < last && combination[r - 1] < n) {
+            for (int i = 0; i < r; ++i)
+                set[i] = cards[combination[i]];
+
+            int missing = completeSet(set, r);
+            if (missing >= 0 && position[missing] > combination[r - 1]) {
+                set[r] = missing;
+                if (!visitor.visit(set)) return false;
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && combination[t] == n - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return true;
+    }
+
+    /**
+     * A fork/join search that splits the positions of the first card of each combination between the workers of the
+     * common pool, and stops all of them once count sets were found.
+     */
+    private class ParallelSearch extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The number of first-card positions a single task walks without splitting further.
+         */
+        private static final int GRAIN = 8;
+
+        private final int[] cards;
+        private final int[] position;
+        private final int count;
+        private final int first;
+        private final int last;
+        private final AtomicInteger found;
+        private final Queue<int[]> sets;
+
+        /**
+         * @param cards - the cards to search.
+         * @param count - the maximum number of sets to find.
+         * @param sets  - a thread safe queue receiving the sets found (null when only counting).
+         */
+        private ParallelSearch(int[] cards, int count, Queue<int[]> sets) {
+            this(cards, new int[config.deckSize], count, 0, cards.length, new AtomicInteger(), sets);
+            Arrays.fill(position, -1);
+            for (int i = 0; i < cards.length; ++i)
+                position[cards[i]] = i;
+        }
+
+        private ParallelSearch(int[] cards, int[] position, int count, int first, int last, AtomicInteger found, Queue<int[]> sets) {
+            this.cards = cards;
+            this.position = position;
+            this.count = count;
+            this.first = first;
+            this.last = last;
+            this.found = found;
+            this.sets = sets;
+        }
+
+        /**
+         * @return - the number of sets found (at most count).
+         */
+        private int run() {
+            ForkJoinPool.commonPool().invoke(this);
+            return Math.min(found.get(), count);
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first <= GRAIN) {
+                for (int i = first; i < last && found.get() < count; ++i) // stop early once cancelled
+                    completeCombinations(cards, cards.length, position, i, i + 1, set -> {
+                        int index = found.incrementAndGet();
+                        if (sets != null && index <= count) sets.add(sorted(set));
+                        return index < count;
+                    });
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            invokeAll(new ParallelSearch(cards, position, count, first, middle, found, sets),
+                    new ParallelSearch(cards, position, count, middle, last, found, sets));
+        }
+    }
+
+    /**
+     * Finds sets by testing every combination of config.featureSize cards (for tiny feature sizes only).
+     */
+    private List<int[]> testAllCombinations(List<Integer> deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
         int n = deck.size();
         int r = config.featureSize;
+        if (count <= 0 || n < r) return sets;
         int[] combination = new int[r];
 
         for (int i = 0; i < r; ++i)
@@ -90,6 +456,19 @@ public class UtilImpl implements Util {
         return sets;
     }
 
+    @Override
+    public SetCatalog catalog() {
+        if (!catalogBuilt) {
+            synchronized (this) {
+                if (!catalogBuilt) {
+                    catalog = SetCatalog.build(config, this);
+                    catalogBuilt = true;
+                }
+            }
+        }
+        return catalog;
+    }
+
     public void spin() {
         if (config.randomSpinMax <= 0) return;
         long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
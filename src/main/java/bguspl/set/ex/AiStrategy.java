@@ -0,0 +1,35 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+/**
+ * This interface decides what a computer player presses next.
+ */
+public interface AiStrategy {
+
+    /**
+     * Chooses the next keys the computer player should press.
+     *
+     * @param table  - the table (read only).
+     * @param player - the id of the computer player.
+     * @return       - the slots to press, in order.
+     */
+    int[] nextKeys(Table table, int player);
+
+    /**
+     * @return - how long the computer player takes to react before pressing the keys it chose, in milliseconds.
+     */
+    long reactionMillis();
+
+    /**
+     * Creates the strategy named by the configuration (AiStrategy).
+     *
+     * @param config - the game configuration.
+     * @return       - a new strategy, for a single computer player.
+     */
+    static AiStrategy create(Config config) {
+        if (config.aiStrategy.equalsIgnoreCase("Random"))
+            return new RandomAiStrategy(config);
+        return new SetSeekingAiStrategy(config);
+    }
+}
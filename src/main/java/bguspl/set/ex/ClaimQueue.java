@@ -0,0 +1,130 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free, bounded queue of set claims, written by many player threads and read by the dealer thread only.
+ * Claims are player ids kept in a preallocated ring, so offering a claim allocates nothing, and they are polled in the
+ * order in which their offers succeeded.
+ *
+ * @inv 0 <= size() <= capacity()
+ */
+public class ClaimQueue {
+
+    /**
+     * The ring of player ids.
+     */
+    private final int[] claims;
+
+    /**
+     * For each cell of the ring, the position (counted from the start of the queue) it is ready for: position p may be
+     * written when sequences[p & mask] == p, and read once it is p + 1.
+     */
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    /**
+     * The position of the next claim to offer (claimed by producers through compare-and-set).
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The position of the next claim to poll (written by the dealer thread only).
+     */
+    private volatile long head;
+
+    /**
+     * The largest number of claims that were waiting at once.
+     */
+    private final AtomicLong maxDepth = new AtomicLong();
+
+    /**
+     * @param capacity - the maximal number of waiting claims (rounded up to a power of two); since a player waits for
+     *                   the verdict on its claim, the number of players is enough.
+     */
+    public ClaimQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        claims = new int[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds a claim to the end of the queue. Safe to call from any thread.
+     *
+     * @param player - the id of the claiming player.
+     * @return       - true iff the claim was added (false if the queue is full).
+     */
+    public boolean offer(int player) {
+        while (true) {
+            long position = tail.get();
+            long sequence = sequences.get((int) position & mask);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    claims[(int) position & mask] = player;
+                    sequences.lazySet((int) position & mask, position + 1); // publish the claim
+                    long depth = position + 1 - head;
+                    for (long max = maxDepth.get(); depth > max && !maxDepth.compareAndSet(max, depth); max = maxDepth.get());
+                    return true;
+                }
+            } else if (sequence < position) {
+                return false; // the cell was not polled yet: the queue is full
+            }
+        }
+    }
+
+    /**
+     * Removes the claim at the head of the queue. Must be called by the dealer thread only.
+     *
+     * @return - the id of the claiming player, or -1 if the queue is empty.
+     */
+    public int poll() {
+        long position = head;
+        int cell = (int) position & mask;
+        if (sequences.get(cell) != position + 1) return -1;
+        int player = claims[cell];
+        sequences.lazySet(cell, position + mask + 1); // hand the cell back to the producers
+        head = position + 1;
+        return player;
+    }
+
+    /**
+     * @return - true iff no claims are waiting.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return - the number of claims waiting (a snapshot: may be stale by the time it is used).
+     */
+    public int size() {
+        long head = this.head;
+        return (int) Math.max(0, Math.min(tail.get() - head, claims.length));
+    }
+
+    /**
+     * @return - the maximal number of waiting claims.
+     */
+    public int capacity() {
+        return claims.length;
+    }
+
+    /**
+     * @return - the largest number of claims that were waiting at once.
+     */
+    public long maxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return - the number of claims offered since the queue was created.
+     */
+    public long offered() {
+        return tail.get();
+    }
+}
@@ -0,0 +1,59 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+
+/**
+ * This class counts the set claims judged by a dealer and records how long each one waited for its verdict. It is
+ * written by the dealer thread only, and should be read once the game is over.
+ */
+public class ClaimStats {
+
+    /**
+     * The number of claims judged.
+     */
+    private long claims;
+
+    /**
+     * The number of claims that were legal sets.
+     */
+    private long sets;
+
+    /**
+     * The time from each claim to its verdict, in nanoseconds (the first claims entries).
+     */
+    private long[] latencies = new long[256];
+
+    /**
+     * Records a judged claim.
+     *
+     * @param latencyNanos - the time from the claim to its verdict.
+     * @param valid        - true iff the claim was a legal set.
+     */
+    void record(long latencyNanos, boolean valid) {
+        if (claims == latencies.length)
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        latencies[(int) claims++] = latencyNanos;
+        if (valid) ++sets;
+    }
+
+    /**
+     * @return - the number of claims judged.
+     */
+    public long claims() {
+        return claims;
+    }
+
+    /**
+     * @return - the number of claims that were legal sets.
+     */
+    public long sets() {
+        return sets;
+    }
+
+    /**
+     * @return - a copy of the time from each claim to its verdict, in nanoseconds.
+     */
+    public long[] latencies() {
+        return Arrays.copyOf(latencies, (int) claims);
+    }
+}
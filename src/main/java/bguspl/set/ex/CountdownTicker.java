@@ -0,0 +1,73 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * This class drives the countdown display of a game from a timer shared by all games, so the dealer only has to move
+ * the deadline. Every frame it reads the deadline and updates the display if what it shows has changed.
+ */
+class CountdownTicker {
+
+    /**
+     * The time between two frames (the warning shows hundredths of a second, so this is fast enough to look smooth).
+     */
+    static final long FRAME_MILLIS = 20;
+
+    private final Env env;
+
+    /**
+     * Returns the current deadline of the countdown (System.currentTimeMillis time).
+     */
+    private final LongSupplier deadline;
+
+    /**
+     * What the display shows (accessed by the timer thread only).
+     */
+    private long shownMillis = -1;
+    private boolean shownWarn;
+
+    private ScheduledFuture<?> frames;
+
+    /**
+     * @param env      - the game environment.
+     * @param deadline - returns the current deadline of the countdown; called from the timer thread.
+     */
+    CountdownTicker(Env env, LongSupplier deadline) {
+        this.env = env;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Starts updating the display.
+     */
+    synchronized void start() {
+        if (frames == null)
+            frames = GameTimer.timer.scheduleAtFixedRate(this::tick, 0, FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops updating the display.
+     */
+    synchronized void stop() {
+        if (frames != null) frames.cancel(false);
+        frames = null;
+    }
+
+    private void tick() {
+        try {
+            long remaining = Math.max(0, deadline.getAsLong() - System.currentTimeMillis());
+            boolean warn = remaining <= env.config.turnTimeoutWarningMillis;
+            long millis = warn ? remaining - remaining % 10 : remaining - remaining % 1000; // as precise as it is shown
+            if (millis == shownMillis && warn == shownWarn) return;
+            shownMillis = millis;
+            shownWarn = warn;
+            env.ui.setCountdown(millis, warn);
+        } catch (RuntimeException e) { // an exception would cancel the ticker for good
+            env.logger.severe("countdown display update failed: " + e);
+        }
+    }
+}
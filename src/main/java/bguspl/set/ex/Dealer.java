@@ -1,13 +1,14 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.SetCatalog;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
+import java.util.BitSet;
 import java.util.Stack;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class manages the dealer's threads and data
@@ -26,9 +27,14 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The card ids that are left in the dealer's deck.
      */
-    private final List<Integer> deck;
+    private final Deck deck;
+
+    /**
+     * Follows which sets can still be collected from the deck and the table (null if the deck is too large to catalog).
+     */
+    private final SetCatalog.Tracker setsInPlay;
 
     /**
      * True iff game should be terminated.
@@ -39,20 +45,47 @@ public class Dealer implements Runnable {
     /**
      * The time when the dealer needs to reshuffle the deck due to turn timeout.
      */
-    private long reshuffleTime = Long.MAX_VALUE;
+    private volatile long reshuffleTime = Long.MAX_VALUE;
+
+    /**
+     * The version of the table snapshot whose hints were last shown (-1 if none).
+     */
+    private long hintsVersion = -1;
+
+    /**
+     * Shows the time left until reshuffleTime.
+     */
+    private final CountdownTicker countdown;
 
 
 
     /**
-     * this lock incharge of the sleeping state of the Dealer
+     * The dealer thread, parked while there is nothing to do until a player or the countdown wakes it up.
      */
-    private final Object lockSleepDealer;
+    private volatile Thread dealerThread;
 
 
     /**
-     * orgenized the requests of the payers to test their sets by order
+     * orgenized the requests of the payers to test their sets by order (lock-free, many players to the dealer)
      */
-    public Queue<Player> setCheckRequests;
+    public final ClaimQueue setCheckRequests;
+
+    /**
+     * The players whose claims are being judged, and their cards (featureSize per claim), reused between batches.
+     */
+    private final Player[] claimants;
+    private final int[] claimCards;
+
+    /**
+     * The cards and slots of a batch of table changes, reused between batches.
+     */
+    private final int[] batchCards;
+    private final int[] batchSlots;
+
+    /**
+     * Counts the claims judged by the dealer and how long they waited.
+     */
+    public final ClaimStats stats = new ClaimStats();
 
     /**
      * Threads list to start and terminate easily
@@ -68,12 +101,18 @@ public class Dealer implements Runnable {
     /**
      * false for player woke him up
      */
-    private boolean playerWokeUpDealer;
+    private volatile boolean playerWokeUpDealer;
 
     /**
      * if removeAllCards , all players will not be able to keyPressed() and wait until he places all cards.
      */
-    public boolean dealerReshufflesTable;
+    public volatile boolean dealerReshufflesTable;
+
+    /**
+     * Computer players wait on tableReady while the dealer reshuffles the table.
+     */
+    private final ReentrantLock reshuffleLock = new ReentrantLock();
+    private final Condition tableReady = reshuffleLock.newCondition();
 
 
 
@@ -81,12 +120,18 @@ public class Dealer implements Runnable {
         this.env = env;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        deck = new Deck(env.config.deckSize, env.config.randomSeed);
+        SetCatalog catalog = env.util.catalog();
+        setsInPlay = catalog == null ? null : catalog.newTracker();
         
         reshuffleTime = System.currentTimeMillis()+ env.config.turnTimeoutMillis;
+        countdown = new CountdownTicker(env, () -> reshuffleTime);
         playerThreads = new Thread[players.length];
-        setCheckRequests = new LinkedList<Player>();
-        this.lockSleepDealer = new Object();
+        setCheckRequests = new ClaimQueue(players.length);
+        claimants = new Player[players.length];
+        claimCards = new int[players.length * env.config.featureSize];
+        batchCards = new int[env.config.tableSize];
+        batchSlots = new int[env.config.tableSize];
         this.playerWokeUpDealer =false;
         this.dealerReshufflesTable = true;//will start with true to let dealer put all cards.
         this.playerStackIdInCreationOrder = new Stack<Integer>();
@@ -97,24 +142,30 @@ public class Dealer implements Runnable {
      */
     @Override
     public void run() {
+        dealerThread = Thread.currentThread();
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
         
         
-        //creating the player Threads
-        for(int i=0; i<playerThreads.length; i++){
-            playerThreads[i] = new Thread(players[i]);
+        //creating the player Threads (none for a game terminated before it started)
+        for(int i=0; i<playerThreads.length && !terminate; i++){
+            playerThreads[i] = env.threads.newThread(players[i]);
+            playerThreads[i].setName("player-" + i);
             playerThreads[i].start();
         }
 
 
-        while (!shouldFinish()) {
-            placeCardsOnTable();
-            updateTimerDisplay(true);//to start from 60
-            timerLoop();
-            //updateTimerDisplay(false);
-            removeAllCardsFromTable();
+        countdown.start();
+        try {
+            while (!shouldFinish()) {
+                placeCardsOnTable();
+                resetCountdown();//to start from 60
+                timerLoop();
+                removeAllCardsFromTable();
+            }
+        } finally {
+            countdown.stop();
         }
-        if(env.util.findSets(deck, 1).size() == 0){//if no sets left in the deck
+        if(!hasSetsInPlay()){//if no sets left in the deck
             announceWinners();
         }
             
@@ -126,15 +177,24 @@ public class Dealer implements Runnable {
      */
     private void timerLoop() {
         env.logger.info("dealer entred timerloop");
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) {
+        while (!terminate && System.currentTimeMillis() < reshuffleTime && !simulationStuck()) {
             env.logger.info("dealer entred timerloop WHILE LOOP");
             sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false);
             removeCardsFromTable();
             placeCardsOnTable();
         }
     }
 
+    /**
+     * A simulation does not wait out the turn timeout when there is nothing to find: the table is reshuffled as soon
+     * as it holds no set (the computer players would not press anything until the countdown ran out).
+     *
+     * @return true iff this is a simulation and there is no legal set on the table.
+     */
+    private boolean simulationStuck() {
+        return env.config.simulation && table.snapshot().sets().isEmpty();
+    }
+
     /**
      * Called when the game should be terminated.
      */
@@ -147,7 +207,11 @@ public class Dealer implements Runnable {
                 
            } catch (InterruptedException ignored) {} 
         }
+        for (Player player : players) // players whose threads did not start yet will not start playing
+            player.terminate();
         terminate = true;
+        Thread dealer = dealerThread;
+        if (dealer != null) LockSupport.unpark(dealer);
     }
 
     /**
@@ -156,163 +220,148 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+        return terminate || !hasSetsInPlay();
+    }
+
+    /**
+     * Checks if any set can still be collected from the cards in the deck and on the table.
+     *
+     * @return true iff a legal set remains in play.
+     */
+    private boolean hasSetsInPlay() {
+        if (setsInPlay != null)
+            return setsInPlay.hasAvailableSet();
+        return deck.containsSet(env.util); // only called when all cards in play are back in the deck
     }
 
     /**
      * Checks cards should be removed from the table and removes them.
+     * All the claims waiting in the requests queue are verified together, then judged in their arrival order.
      */
     private void removeCardsFromTable() {
-        // TODO implement
         env.logger.info("DEALER :Entered RemoveCardsFromTable()");
         if(playerWokeUpDealer|| !setCheckRequests.isEmpty()){
-            env.logger.info("PlayerWokeUpDealer = true (so entered the IF)");
-            //woke up because of a SetCheck call from player.
-            Player currPlayerSetToTest = setCheckRequests.poll();
-            env.logger.info("Dealer polled the set from the request queue Set is:" + table.cardsPlayerHasTokened[currPlayerSetToTest.id]);
-            synchronized(currPlayerSetToTest){//player is asleep until check is done
-                env.logger.info("DEALER : took the key of player id: "+currPlayerSetToTest.id);
-                if(currPlayerSetToTest !=null && 
-                table.cardsPlayerHasTokened[currPlayerSetToTest.id].size()
-                ==
-                env.config.featureSize) //in order to avoid checking a set that includes a card we have just removed from the table 
-                 {
-                    LinkedList<Integer> cardList = table.cardsPlayerHasTokened[currPlayerSetToTest.id];
-                    // Convert LinkedList to array:
-                    int[] setToCheck = new int[cardList.size()];
-                    for (int i = 0; i < cardList.size(); i++) {
-                        setToCheck[i] = cardList.get(i); // Auto-unboxing converts Integer to int
-                    }
-                    boolean isSet = env.util.testSet(setToCheck);
-                    env.logger.info("Dealer Testing the SET");
-                    if(isSet){
-                        
-                        for(int card : setToCheck){
-                            int mySlot = table.cardToSlot[card];
-                            table.removeCard(mySlot);
+            playerWokeUpDealer = false; //resets the flag
+            int k = env.config.featureSize;
+            int claims = 0;
+            int claimantId;
+            while (claims < claimants.length && (claimantId = setCheckRequests.poll()) != -1) {
+                Player claimant = players[claimantId];
+                claimants[claims] = claimant;
+                // a claim that lost a card is left partly empty and will be penalized below
+                for (int i = table.tokenedCards(claimant.id, claimCards, claims * k, k); i < k; i++)
+                    claimCards[claims * k + i] = 0;
+                claims++;
+            }
+            env.logger.info("Dealer Testing " + claims + " SETS");
+            BitSet isSet = env.util.testSets(claimCards, k, claims);
+
+            boolean scored = false;
+            for (int c = 0; c < claims; c++) {
+                Player currPlayerSetToTest = claimants[c];
+                claimants[c] = null;
+                currPlayerSetToTest.claimLock.lock();//player is asleep until check is done
+                try{
+                    //in order to avoid accepting a set that includes a card we have just removed from the table
+                    boolean valid = isSet.get(c) && table.countTokens(currPlayerSetToTest.id) == k;
+                    if(valid){
+                        for(int i = 0; i < k; i++){
+                            int card = claimCards[c * k + i];
+                            batchSlots[i] = table.slotOf(card);
+                            if (setsInPlay != null)
+                                setsInPlay.discard(card);
                         }
-                        playerWokeUpDealer = false; //resets the flag
-                        env.logger.info("playerWokeUpDealer flag is false(reseted) by Player " + currPlayerSetToTest.id);
-                        currPlayerSetToTest.inPointState = true;
-                        currPlayerSetToTest.notifyAll();
-                        updateTimerDisplay(true);
-                    } 
-                    
-                    else {
-                        playerWokeUpDealer = false; //resets the flag
-                        env.logger.info("playerWokeUpDealer flag is false(reseted) by Player " + currPlayerSetToTest.id);
-                        currPlayerSetToTest.inPointState = false;
-                        currPlayerSetToTest.notifyAll();
+                        table.removeCards(batchSlots, k);
+                        scored = true;
                     }
-                }
-                else {// if a card was removed and belonged to a player's set that was waiting in the requests queue
-                    playerWokeUpDealer = false; //resets the flag
-                    env.logger.info("playerWokeUpDealer flag is false(reseted) by Player " + currPlayerSetToTest.id);
-                    currPlayerSetToTest.inPointState = false;
-                    currPlayerSetToTest.notifyAll();
+                    env.logger.info("Dealer judged the set of Player " + currPlayerSetToTest.id + ": " + valid);
+                    stats.record(System.nanoTime() - currPlayerSetToTest.claimNanos, valid);
+                    currPlayerSetToTest.giveVerdict(valid);
+                } finally {
+                    currPlayerSetToTest.claimLock.unlock();
                 }
             }
-            env.logger.info("DEALER : REALESED the key of player id: "+currPlayerSetToTest.id);
-            if (deck.isEmpty()) {
-                List<Integer> cardsOnTable = new LinkedList<Integer>();
-                for (int i=0; i<table.slotToCard.length; i++){
-                    if (table.slotToCard[i] != null)
-                        cardsOnTable.add(table.slotToCard[i]);
-                }
-                if (env.util.findSets(cardsOnTable, 1).size() == 0)
-                    this.terminate = true;
-            }
+            if (scored)
+                resetCountdown();
+            if (deck.isEmpty() && table.snapshot().sets().isEmpty())
+                this.terminate = true;
         }   
     }
 
     /**
      * Check if any cards can be removed from the deck and placed on the table.
+     * All the empty slots are refilled in a single batch.
      */
     private void placeCardsOnTable() {
-        // TODO implement
-         // Iterate over each slot
-        for (int slotToCheck = 0; slotToCheck < env.config.tableSize; slotToCheck++) {
-            // Check if the slot is empty and get a card
-            if (table.slotToCard[slotToCheck] == null) {
-                // Acquire lock for the current slot
-                synchronized (table.slotLocks[slotToCheck]) {
-                    env.logger.info("Dealer.placeCardsOnTable has the slotLock: slot- " +slotToCheck);
-                    int card = getNextCardFromDeck(slotToCheck);
-                    // If there is a card to place
-                    if (card != -1) {
-                        table.placeCard(card, slotToCheck); 
-                    }
-                }
-                env.logger.info("Dealer.placeCardsOnTable has REALESED THE slotLock" +slotToCheck);
-                
-            }
-        }
-        dealerReshufflesTable = false; //letting the players keep playing after the remove all
-        //table.hints();
+        int count = table.emptySlots(batchSlots, deck.size());
+        for (int i = 0; i < count; i++)
+            batchCards[i] = deck.draw();
+        table.placeCards(batchCards, batchSlots, count);
+        if (count > 0)
+            env.logger.info("Dealer placed " + count + " cards on the table");
+        setReshuffling(false); //letting the players keep playing after the remove all
+        showHints();
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * Highlights the hints, if they are on and the table changed since they were last shown (they are not printed:
+     * table.hints() is there for debugging).
+     */
+    private void showHints() {
+        if (!env.config.hints) return;
+        long version = table.snapshot().version;
+        if (version == hintsVersion) return;
+        hintsVersion = version;
+        env.ui.setHints(table.hintSlots());
+    }
+
+    /**
+     * Sleep until the thread is awakened by a claim, or until the countdown runs out - whichever comes first.
+     * (The countdown display is updated by the ticker meanwhile.)
      */
     private void sleepUntilWokenOrTimeout() {
-        //TODO implement
-        synchronized (lockSleepDealer) {
-            try {
-                // Wait with a timeout (the turn timeout)
-                lockSleepDealer.wait(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt(); // Preserve interrupt status
+        long deadline = reshuffleTime;
+        while (!terminate && !playerWokeUpDealer && setCheckRequests.isEmpty()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) break;
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(remaining));
+            if (Thread.interrupted())
                 env.logger.warning("Dealer thread interrupted.");
-            }
-
         }
     }
 
     /**
-     * Reset and/or update the countdown and the countdown display.
+     * Reset the countdown (the ticker shows the new deadline on its next frame).
      */
-    private void updateTimerDisplay(boolean reset) {
-        // TODO implement
-        if(reset){
-            env.logger.info("reset TIME");
-            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
-            env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), false);
-            try {
-                Thread.sleep(500);//for better looking when removing a set
-            } catch (InterruptedException ignore) {}
-            env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), false);
-        }
-        else if((reshuffleTime - System.currentTimeMillis()) <= env.config.turnTimeoutWarningMillis){
-            env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), true);
-            if(reshuffleTime - System.currentTimeMillis() <= 0){
-                env.ui.setCountdown(0, true);
-            }
-        }
-        
-        else
-            env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), false);   
+    private void resetCountdown() {
+        env.logger.info("reset TIME");
+        reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
     }
 
     /**
      * Returns all the cards from the table to the deck.
      */
     private void removeAllCardsFromTable() {
-        dealerReshufflesTable = true;
+        setReshuffling(true);
         env.logger.info("got in removeAllCards function");
         //dealerPlacingCardsOnTable = true;
         // TODO implement
         for(Player player : players){
             player.actionsQueue.clear();
         }
+        int count = 0;
         for (int slot = 0; slot < env.config.tableSize; slot++) {
-            if (table.slotToCard[slot] != null) {               
-                deck.add(table.slotToCard[slot]);
-                table.removeCard(slot);
+            int card = table.cardAt(slot);
+            if (card != -1) {
+                batchCards[count] = card;
+                batchSlots[count++] = slot;
             }
         }
+        table.removeCards(batchSlots, count);
+        deck.returnCards(batchCards, count);
 
 
-        updateTimerDisplay(true);
+        resetCountdown();
         env.logger.info("time has been reset after removing all cards");
     }
 
@@ -320,7 +369,14 @@ public class Dealer implements Runnable {
      * Check who is/are the winner/s and displays them.
      */
     private void announceWinners() {
-        // TODO implement
+        env.ui.announceWinner(winners());
+        terminate();
+    }
+
+    /**
+     * @return - the ids of the players with the top score.
+     */
+    public int[] winners() {
         int topScore = 0;
         for (Player currPlayer : players) {
             if (topScore < currPlayer.score())
@@ -339,31 +395,48 @@ public class Dealer implements Runnable {
                 j++;
             } 
         }
-        env.ui.announceWinner(winners);
-        terminate();
+        return winners;
     }
 
+    /**
+     * @return - the score of each player, by player id.
+     */
+    public int[] scores() {
+        int[] scores = new int[players.length];
+        for (Player player : players)
+            scores[player.id] = player.score();
+        return scores;
+    }
 
 
-    public void playerWakeUpDealer() { //id of the player that waked the dealer up
-        //env.logger.info("PlayerWokeUpDealer() is called by player: " + playerId);
-        synchronized (lockSleepDealer) {
-            playerWokeUpDealer = true;//player woke the dealer up
-            //env.logger.info("Player "+playerId+" changed the playerWokeUpDealer Flag to TRUE");
-            lockSleepDealer.notify(); // Wake up the dealer
+
+    private void setReshuffling(boolean reshuffling) {
+        reshuffleLock.lock();
+        try {
+            dealerReshufflesTable = reshuffling;
+            if (!reshuffling) tableReady.signalAll();
+        } finally {
+            reshuffleLock.unlock();
         }
     }
 
-
-    private int getNextCardFromDeck(int slotToPutCard) {
-        //if I dont have more cards in the deck return -1
-        int randomIndexCard = (int)Math.floor(Math.random()*(deck.size()));;
-        if(deck.size()==0){
-            return -1;
+    /**
+     * Waits while the dealer reshuffles the table.
+     */
+    public void awaitTableReady() throws InterruptedException {
+        if (!dealerReshufflesTable) return;
+        reshuffleLock.lock();
+        try {
+            while (dealerReshufflesTable && !terminate)
+                tableReady.await();
+        } finally {
+            reshuffleLock.unlock();
         }
-        int cardToPutOnTable = deck.get(randomIndexCard);
-        table.placeCard(cardToPutOnTable, slotToPutCard);
-        deck.remove(randomIndexCard);
-        return -1;
     }
-}
\ No newline at end of file
+
+    public void playerWakeUpDealer() {
+        playerWokeUpDealer = true;//player woke the dealer up
+        Thread dealer = dealerThread;
+        if (dealer != null) LockSupport.unpark(dealer); // Wake up the dealer
+    }
+}
@@ -0,0 +1,101 @@
+package bguspl.set.ex;
+
+import bguspl.set.Util;
+
+import java.util.SplittableRandom;
+
+/**
+ * This class holds the cards that are left in the dealer's deck, kept shuffled so that drawing a random card is
+ * taking the last one. Not thread safe: it is used by the dealer thread only.
+ *
+ * @inv 0 <= size() <= cards.length
+ */
+public class Deck {
+
+    /**
+     * The cards in the deck (the first size entries), in random order.
+     */
+    private final int[] cards;
+
+    /**
+     * The number of cards in the deck.
+     */
+    private int size;
+
+    /**
+     * The random number generator of this deck (one per game, so games can be replayed from a seed).
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Creates a full, shuffled deck.
+     *
+     * @param deckSize - the number of cards in the game.
+     * @param seed     - the seed of the shuffles (0 for a different order every time).
+     */
+    public Deck(int deckSize, long seed) {
+        this.cards = new int[deckSize];
+        for (int card = 0; card < deckSize; card++)
+            cards[card] = card;
+        this.size = deckSize;
+        this.random = seed == 0 ? new SplittableRandom() : new SplittableRandom(seed);
+        shuffle();
+    }
+
+    /**
+     * Shuffles the deck (Fisher-Yates).
+     */
+    public void shuffle() {
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int card = cards[i];
+            cards[i] = cards[j];
+            cards[j] = card;
+        }
+    }
+
+    /**
+     * Removes a random card from the deck, in O(1).
+     *
+     * @return - the card drawn, or -1 if the deck is empty.
+     */
+    public int draw() {
+        return size == 0 ? -1 : cards[--size];
+    }
+
+    /**
+     * Returns cards to the deck and reshuffles it.
+     *
+     * @param returned - the cards to return (the first count entries).
+     * @param count    - the number of cards to return.
+     */
+    public void returnCards(int[] returned, int count) {
+        System.arraycopy(returned, 0, cards, size, count);
+        size += count;
+        shuffle();
+    }
+
+    /**
+     * @return - the number of cards in the deck.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return - true iff the deck has no cards left.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks if the cards in the deck contain a legal set.
+     *
+     * @param util - the utilities used to search for a set.
+     * @return     - true iff the deck contains a legal set.
+     */
+    public boolean containsSet(Util util) {
+        return util.containsSet(cards, size);
+    }
+}
@@ -0,0 +1,22 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * This class holds the timer that runs the display updates of all games (countdowns and freeze times), so that no
+ * game thread has to sleep just to refresh the display.
+ */
+final class GameTimer {
+
+    /**
+     * The timer's single daemon thread runs short display updates only.
+     */
+    static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "game-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private GameTimer() {}
+}
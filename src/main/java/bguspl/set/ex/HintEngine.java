@@ -0,0 +1,95 @@
+package bguspl.set.ex;
+
+import bguspl.set.Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class keeps the hints (the legal sets on the table) of the latest table snapshot. It is brought up to date only
+ * when the snapshot's version changed, and then only the sets that are new to the table are described again: a set
+ * keeps the same card array for as long as it stays on the table, so the sets that did not touch a changed slot are
+ * found in the cache by identity.
+ */
+class HintEngine {
+
+    /**
+     * Used to describe the features of the cards of a set.
+     */
+    private final Util util;
+
+    /**
+     * The version of the snapshot the hints were computed for (-1 if none).
+     */
+    private long version = -1;
+
+    /**
+     * The description of each set on the table, by its card array.
+     */
+    private Map<int[], String> lines = new IdentityHashMap<>();
+
+    /**
+     * The descriptions of the sets on the table, in the order of the snapshot's sets.
+     */
+    private List<String> ordered = Collections.emptyList();
+
+    /**
+     * The slots of the cards of all the sets on the table.
+     */
+    private BitSet slots = new BitSet();
+
+    HintEngine(Util util) {
+        this.util = util;
+    }
+
+    /**
+     * @param view - the table snapshot.
+     * @return     - the descriptions of the legal sets on the table, one line per set, in the order of view.sets().
+     */
+    synchronized List<String> lines(TableSnapshot view) {
+        update(view);
+        return ordered;
+    }
+
+    /**
+     * @param view - the table snapshot.
+     * @return     - a copy of the slots of the cards of all the legal sets on the table.
+     */
+    synchronized BitSet slots(TableSnapshot view) {
+        update(view);
+        return (BitSet) slots.clone();
+    }
+
+    private void update(TableSnapshot view) {
+        if (view.version == version) return;
+        Map<int[], String> updated = new IdentityHashMap<>(view.sets().size() * 2);
+        List<String> inOrder = new ArrayList<>(view.sets().size());
+        BitSet hinted = new BitSet(view.tableSize());
+        for (int i = 0; i < view.sets().size(); i++) {
+            int[] set = view.sets().get(i);
+            int[] setSlots = view.setSlots().get(i);
+            String line = lines.get(set);
+            if (line == null)
+                line = describe(set, setSlots);
+            updated.put(set, line);
+            inOrder.add(line);
+            for (int slot : setSlots)
+                hinted.set(slot);
+        }
+        lines = updated;
+        ordered = Collections.unmodifiableList(inOrder);
+        slots = hinted;
+        version = view.version;
+    }
+
+    private String describe(int[] set, int[] setSlots) {
+        int[] sorted = setSlots.clone();
+        Arrays.sort(sorted);
+        return "Hint: Set found: slots: " + Arrays.toString(sorted) + " features: " + Arrays.deepToString(util.cardsToFeatures(set));
+    }
+}
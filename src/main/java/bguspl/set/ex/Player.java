@@ -2,6 +2,9 @@ package bguspl.set.ex;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import bguspl.set.Env;
 
 /**
@@ -61,6 +64,11 @@ public class Player implements Runnable {
 
 
 
+    /**
+     * How long a computer player waits before looking at the table again when it had nothing to press.
+     */
+    private static final long AI_IDLE_MILLIS = 10;
+
     /**
      * Dealer
      */
@@ -69,14 +77,36 @@ public class Player implements Runnable {
 
      /**
      * player will sleep until a key is pressed.
+     * (The player's waits use locks rather than monitors: a virtual thread waiting on a monitor pins its carrier.)
+     */
+    private final ReentrantLock keyPressLock;
+    private final Condition keyWasPressed;
+
+    /**
+     * Held by the player while it plays its actions, and by the dealer while it judges the player's claim.
+     */
+    final ReentrantLock claimLock;
+
+    /**
+     * Signalled by the dealer when the player's claim was judged.
      */
-    private Object keyPressLock;
+    private final Condition verdictGiven;
 
+    /**
+     * Signalled by the player when it processed its actions queue (the AI thread waits for it).
+     */
+    private final Condition actionsQueueNotFull;
 
     /**
-     * freezeTimeFlag
+     * True from the player's claim until the dealer judges it (guarded by claimLock).
      */
-    private boolean isInFreezeTime; //
+    private boolean awaitingVerdict;
+
+
+    /**
+     * The time (System.currentTimeMillis) until which the player is frozen, checked by keyPressed without locking.
+     */
+    private volatile long freezeUntil;
 
 
     /**
@@ -84,6 +114,11 @@ public class Player implements Runnable {
      */
     public boolean inPointState; 
 
+    /**
+     * The time (System.nanoTime) of the player's last set claim.
+     */
+    volatile long claimNanos;
+
 
 
     /**
@@ -104,8 +139,11 @@ public class Player implements Runnable {
         this.human = human;
 
         this.actionsQueue = new LinkedBlockingQueue<>(env.config.featureSize);
-        this.keyPressLock = new Object();
-        this.isInFreezeTime = false;
+        this.keyPressLock = new ReentrantLock();
+        this.keyWasPressed = keyPressLock.newCondition();
+        this.claimLock = new ReentrantLock();
+        this.verdictGiven = claimLock.newCondition();
+        this.actionsQueueNotFull = claimLock.newCondition();
         this.inPointState = false;
     }
 
@@ -122,92 +160,131 @@ public class Player implements Runnable {
         while (!terminate) {
             // TODO implement main player loop
 
-            if(human){//for bonus
-                synchronized(keyPressLock){ //go to sleep until keyPress
-                    try{
-                        while(actionsQueue.isEmpty() && !terminate){
-                            keyPressLock.wait();    
-                            env.logger.info("Player: " +id+ "goes to sleep until a key is pressed");
-                        }
-                    }
-                    catch(InterruptedException ignored){}
+            keyPressLock.lock(); //go to sleep until keyPress
+            try{
+                while(actionsQueue.isEmpty() && !terminate){
+                    keyWasPressed.await();
+                    env.logger.info("Player: " +id+ "goes to sleep until a key is pressed");
                 }
             }
+            catch(InterruptedException ignored){}
+            finally {
+                keyPressLock.unlock();
+            }
            
-            synchronized(this){
+            claimLock.lock();
+            try{
                     while(!actionsQueue.isEmpty()){
                         env.logger.info(actionsQueue.toString());
                         Integer currSlot =  actionsQueue.poll();
                         env.logger.info("Player " +id+ " :I have my key and I Polled from actionsQueue the slot: " + currSlot); // Debugging line
-                        synchronized(table.slotLocks[currSlot]){ //in order to avoid same slot in one clocktick
-                            env.logger.info("Player: " + id + "has the slotLock: lock-" + currSlot);
-                            if(table.cardsPlayerHasTokened[id].contains(table.slotToCard[currSlot])){
-                                table.removeToken(id, currSlot);
-                            }
-                            else if(table.cardsPlayerHasTokened[id].size()<env.config.featureSize){//in order to avoind placing "4th" token
-                                table.placeToken(id, currSlot);
-                               
-                            }
+                        if(table.hasToken(id, currSlot)){
+                            table.removeToken(id, currSlot);
                         }
-                        env.logger.info("Releasing the SlotKey: "+ currSlot);
-                        if (table.cardsPlayerHasTokened[id].size() == env.config.featureSize){//check for a set
-                            dealer.setCheckRequests.add(this);
+                        else if(table.countTokens(id)<env.config.featureSize){//in order to avoind placing "4th" token
+                            table.placeToken(id, currSlot); // lock free: taken back if the card leaves meanwhile
+                           
+                        }
+                        if (table.countTokens(id) == env.config.featureSize){//check for a set
+                            claimNanos = System.nanoTime();
+                            awaitingVerdict = true;
+                            while (!dealer.setCheckRequests.offer(id))
+                                Thread.yield(); // cannot happen while the queue has room for every player
                             env.logger.info("Player " +id+ " asked to check set (added to request queue)");
                             dealer.playerWakeUpDealer();//setCheck
                             try {
-                                this.wait();
+                                while (awaitingVerdict && !terminate)
+                                    verdictGiven.await();
                             } catch (InterruptedException e) {
                                 env.logger.warning(" Player " + id + " was interrupted during setCheck sleep.");
                             }
-                            if(inPointState)
+                            if (awaitingVerdict) // the game ended before the claim was judged
+                                awaitingVerdict = false;
+                            else if(inPointState)
                                 point();
                             else
                                 penalty();
                             //wakes up after getting a point/penalty
                         }
                     }
-                }
-                if(!human && actionsQueue.size()<env.config.featureSize){
-                    synchronized(this){
-                        this.notifyAll();
-                        //env.logger.info("AI " +id+ " : is awake");
-                    }
-                }          
+                if(!human)
+                    actionsQueueNotFull.signalAll(); // waking the AI
+            } finally {
+                claimLock.unlock();
+            }
          }
         if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly waits for
+     * its reaction time, asks its strategy which keys to press and presses them, no faster than config.aiClicksPerSecond.
+     * The thread waits (without spinning) while the queue of key presses is full, while the player is frozen and while
+     * the dealer reshuffles the table. It also waits for its earlier presses and claim to be processed before it asks
+     * the strategy again, since the keys it chooses depend on the tokens the player has.
      */
     private void createArtificialIntelligence() {
         // note: this is a very, very smart AI (!)
-        aiThread = new Thread(() -> {
+        aiThread = env.threads.newThread(() -> {
             env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+            AiStrategy strategy = AiStrategy.create(env.config);
+            TokenBucket clicks = new TokenBucket(env.config.aiClicksPerSecond, env.config.featureSize);
             while (!terminate) {
-                // TODO implement player key press simulator
-                    
-                    
-                    while( !terminate &&!dealer.dealerReshufflesTable &&  actionsQueue.size()<env.config.featureSize){
-                        int slotToClick = (int)(Math.floor(Math.random()*(env.config.tableSize)));
-                        keyPressed(slotToClick);
-                    }
-                    
-                    while(!terminate && actionsQueue.size()==env.config.featureSize){
+                try {
+                    long reaction = strategy.reactionMillis();
+                    if (reaction > 0)
+                        Thread.sleep(reaction);
+                    awaitPlayable();
+                    awaitPressesProcessed();
+                    int[] slotsToClick = strategy.nextKeys(table, id); // after reacting: the table may have changed
+                    if (slotsToClick.length == 0)
+                        Thread.sleep(AI_IDLE_MILLIS); // nothing to press yet: look again later
+
+                    for (int slotToClick : slotsToClick) {
+                        claimLock.lock();
                         try {
-                            synchronized (this) { wait(); }
-                        } catch (InterruptedException ignore) {}
+                            while(!terminate && actionsQueue.size()==env.config.featureSize)
+                                actionsQueueNotFull.await();
+                        } finally {
+                            claimLock.unlock();
+                        }
+                        if (terminate) break;
+                        clicks.acquire();
+                        keyPressed(slotToClick);
                     }
-                    
-
+                } catch (InterruptedException ignore) {}
             }
             env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
+        });
+        aiThread.setName("computer-" + id);
         aiThread.start();
     }
 
+    /**
+     * Waits until the player processed all the keys pressed so far and its claim (if any) was judged.
+     * Waits in AI_IDLE_MILLIS steps, since the dealer empties the queue without signalling.
+     */
+    private void awaitPressesProcessed() throws InterruptedException {
+        claimLock.lock();
+        try {
+            while (!terminate && (!actionsQueue.isEmpty() || awaitingVerdict))
+                actionsQueueNotFull.await(AI_IDLE_MILLIS, TimeUnit.MILLISECONDS);
+        } finally {
+            claimLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the player can play: it is not frozen and the dealer is not reshuffling the table.
+     */
+    private void awaitPlayable() throws InterruptedException {
+        long frozen;
+        while (!terminate && (frozen = freezeUntil - System.currentTimeMillis()) > 0)
+            Thread.sleep(frozen);
+        dealer.awaitTableReady();
+    }
+
     /**
      * Called when the game should be terminated.
      */
@@ -217,7 +294,7 @@ public class Player implements Runnable {
         terminate = true;
         // Interrupt the player's thread to exit any blocking operation
         if (playerThread != null) {
-            if(!human){
+            if(!human && aiThread != null){
                 aiThread.interrupt();
             }
             playerThread.interrupt();
@@ -239,14 +316,15 @@ public class Player implements Runnable {
     public void keyPressed(int slot) {
         // TODO implement
         env.logger.info("player "+id+ " is awake and Entered KeyPressed() func");
-        if(!dealer.dealerReshufflesTable && !isInFreezeTime && actionsQueue.size()<env.config.featureSize && table.slotToCard[slot]!=null ){ //in order to avoid clicking a "grey" slot
+        if(!dealer.dealerReshufflesTable && !isFrozen() && actionsQueue.size()<env.config.featureSize && table.cardAt(slot)!=-1 ){ //in order to avoid clicking a "grey" slot
             actionsQueue.add(slot);
             env.logger.info("Player " +id+" : clicked on slot " + slot + "and added it to the actionsQueue");
-            if(human){
-                synchronized(keyPressLock){ // waking the player
-                keyPressLock.notifyAll();
+            keyPressLock.lock(); // waking the player
+            try {
+                keyWasPressed.signalAll();
                 env.logger.info("Player "+id+ "woke up from keypressed" );
-                }
+            } finally {
+                keyPressLock.unlock();
             }
         }
     }
@@ -266,28 +344,9 @@ public class Player implements Runnable {
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
         env.ui.setScore(id,score);
         actionsQueue.clear();
-        isInFreezeTime = true;
+        freeze(env.config.pointFreezeMillis);
 
         env.logger.info("Player " + id + " scored a point. Total score: " + score);
-        try {
-            for(int i = (int)(env.config.pointFreezeMillis/1000); i>0; i--){
-                
-                env.ui.setFreeze(id, i * 1000);
-                Thread.sleep(1000);
-                env.logger.info("seconds left for sleeping point : " + i);
-                
-            }
-            env.ui.setFreeze(id, -1); // making it black again
-            // After the sleep (point time)is finished without interaptions
-            this.isInFreezeTime = false;
-
-
-        } catch (InterruptedException e) {
-            env.logger.warning("Point freeze for Player " + id + " was interrupted.");
-        }
-         // After the sleep (point time) is finished without interaptions
-         env.logger.info("Player " + id + " point time ended.");
-
     }
 
 
@@ -298,31 +357,61 @@ public class Player implements Runnable {
     public void penalty() {
         // TODO implement
             actionsQueue.clear();
-            isInFreezeTime = true;
+            freeze(env.config.penaltyFreezeMillis);
             env.logger.info("Player id: " +id+" cleared actions queue from penalty()");
             env.logger.info("Player " + id + " penalized.");
+    }
 
-            try {
-                for(int i = (int)(env.config.penaltyFreezeMillis/1000); i>0; i--){
-                     
-                    env.ui.setFreeze(id, i * 1000);
-                    Thread.sleep(1000);
-                    env.logger.info("seconds left for sleeping penalty : " + i);
+    /**
+     * Freezes the player: its key presses are ignored until the freeze ends. The player's thread is not blocked;
+     * the remaining freeze time is shown by the game timer.
+     *
+     * @param millis - the freeze time.
+     */
+    private void freeze(long millis) {
+        if (millis <= 0) return;
+        long until = System.currentTimeMillis() + millis;
+        freezeUntil = until;
+        showFreeze(until);
+    }
 
-                }
-                env.ui.setFreeze(id, -1); // making it black again
-                // After the sleep (penalty time)is finished without interaptions
-                this.isInFreezeTime = false;
-                env.logger.info("Player " + id + " penalty time ended.");
-                env.logger.info("Player " + id + " penalty time ended.");
-
-            } catch (InterruptedException e) {
-                env.logger.warning("Penalty sleep for Player " + id + " was interrupted.");
-            }      
+    /**
+     * Shows the remaining freeze time (in whole seconds, rounded up) and schedules the next update for when it
+     * changes, until the freeze ends.
+     *
+     * @param until - the end of the freeze being shown.
+     */
+    private void showFreeze(long until) {
+        if (until != freezeUntil) return; // a later freeze took over
+        long remaining = until - System.currentTimeMillis();
+        if (remaining <= 0) {
+            env.ui.setFreeze(id, -1); // making it black again
+            env.logger.info("Player " + id + " freeze time ended.");
+            return;
+        }
+        long shown = (remaining + 999) / 1000 * 1000;
+        env.ui.setFreeze(id, shown);
+        GameTimer.timer.schedule(() -> showFreeze(until), remaining - (shown - 1000), TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * @return - true iff the player is frozen (after a point or a penalty).
+     */
+    public boolean isFrozen() {
+        return System.currentTimeMillis() < freezeUntil;
+    }
+
+    /**
+     * Called by the dealer, holding claimLock, when it judged the player's claim.
+     *
+     * @param point - true iff the claim was a legal set.
+     */
+    void giveVerdict(boolean point) {
+        inPointState = point;
+        awaitingVerdict = false;
+        verdictGiven.signalAll();
+    }
 
-    
     public int score() {
         return this.score;
     }
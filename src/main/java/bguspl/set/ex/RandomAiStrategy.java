@@ -0,0 +1,27 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Presses random slots, one at a time, as fast as they are accepted.
+ */
+public class RandomAiStrategy implements AiStrategy {
+
+    private final Config config;
+
+    public RandomAiStrategy(Config config) {
+        this.config = config;
+    }
+
+    @Override
+    public int[] nextKeys(Table table, int player) {
+        return new int[]{ThreadLocalRandom.current().nextInt(config.tableSize)};
+    }
+
+    @Override
+    public long reactionMillis() {
+        return 0;
+    }
+}
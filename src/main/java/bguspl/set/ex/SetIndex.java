@@ -0,0 +1,244 @@
+package bguspl.set.ex;
+
+import bguspl.set.Util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class keeps track of the legal sets among the cards currently on the table. It is updated one card at a time,
+ * so that placing or removing a card only touches the sets that include it.
+ * The sets are kept in chunks of CHUNK entries that published views share: a chunk is copied the first time it changes
+ * after a view() (copy-on-write), so a view costs one reference per chunk instead of a copy of every set.
+ *
+ * @inv count() == view().size
+ */
+class SetIndex {
+
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+
+    /**
+     * A set on the table: its cards, sorted, and the slots of those cards (cards do not move while on the table).
+     * Both arrays keep their identity for as long as the set stays on the table.
+     */
+    static final class Entry {
+        final int[] cards;
+        final int[] slots;
+
+        /**
+         * The index of the entry in the chunks (written by the index only, never read through a view).
+         */
+        private int position;
+
+        private Entry(int[] cards, int[] slots) {
+            this.cards = cards;
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * Used to find the sets a card forms with the cards already indexed.
+     */
+    private final Util util;
+
+    /**
+     * The slot of each card on the table (-1 if none).
+     */
+    private final AtomicIntegerArray cardToSlot;
+
+    /**
+     * For each card id, the sets on the table that include it (null if the card is not indexed).
+     */
+    private final Set<Entry>[] setsOfCard;
+
+    /**
+     * The cards currently indexed (the first size entries).
+     */
+    private final int[] cards;
+    private int size;
+
+    /**
+     * For each card id, its index in cards (-1 if the card is not indexed), so that removing a card does not scan them.
+     */
+    private final int[] positions;
+
+    /**
+     * The sets on the table (the first count entries, in CHUNK sized chunks). chunkEpoch[i] == epoch iff chunk i was
+     * copied since the last view, so it is not shared and may be changed in place.
+     */
+    private Entry[][] chunks = new Entry[1][];
+    private int[] chunkEpoch = new int[1];
+    private int epoch = 1;
+    private int count;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    SetIndex(Util util, AtomicIntegerArray cardToSlot, int tableSize) {
+        this.util = util;
+        this.cardToSlot = cardToSlot;
+        this.setsOfCard = new Set[cardToSlot.length()];
+        this.cards = new int[tableSize];
+        this.positions = new int[cardToSlot.length()];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Adds a card that was placed on the table (and entered in cardToSlot), with all the sets it forms with the other
+     * cards.
+     *
+     * @param card - the card placed on the table.
+     */
+    synchronized void add(int card) {
+        if (setsOfCard[card] != null || size == cards.length) return;
+        setsOfCard[card] = new HashSet<>();
+        util.forEachSetWith(card, cards, size, set -> {
+            int[] sorted = set.clone();
+            Arrays.sort(sorted);
+            int[] slots = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++)
+                slots[i] = cardToSlot.get(sorted[i]);
+            Entry entry = new Entry(sorted, slots);
+            append(entry);
+            for (int member : sorted)
+                setsOfCard[member].add(entry);
+            return true;
+        });
+        positions[card] = size;
+        cards[size++] = card;
+    }
+
+    /**
+     * Removes a card that was removed from the table, with all the sets that include it.
+     *
+     * @param card - the card removed from the table.
+     */
+    synchronized void remove(int card) {
+        Set<Entry> removed = setsOfCard[card];
+        if (removed == null) return;
+        setsOfCard[card] = null;
+        for (Entry entry : removed) {
+            delete(entry);
+            for (int member : entry.cards)
+                if (member != card) setsOfCard[member].remove(entry);
+        }
+        int position = positions[card];
+        positions[card] = -1;
+        int last = cards[--size];
+        if (last != card) {
+            cards[position] = last;
+            positions[last] = position;
+        }
+    }
+
+    /**
+     * @return - the number of legal sets on the table.
+     */
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @return - an immutable view of the legal sets on the table, in O(count / CHUNK).
+     */
+    synchronized View view() {
+        ++epoch; // every chunk is now shared with the view
+        return new View(Arrays.copyOf(chunks, (count + CHUNK - 1) >>> CHUNK_BITS), count);
+    }
+
+    private void append(Entry entry) {
+        int chunk = count >>> CHUNK_BITS;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunk * 2);
+            chunkEpoch = Arrays.copyOf(chunkEpoch, chunk * 2);
+        }
+        writable(chunk)[count & (CHUNK - 1)] = entry;
+        entry.position = count++;
+    }
+
+    /**
+     * Removes an entry by moving the last entry to its place.
+     */
+    private void delete(Entry entry) {
+        int last = --count;
+        Entry moved = chunks[last >>> CHUNK_BITS][last & (CHUNK - 1)];
+        writable(last >>> CHUNK_BITS)[last & (CHUNK - 1)] = null;
+        if (moved != entry) {
+            writable(entry.position >>> CHUNK_BITS)[entry.position & (CHUNK - 1)] = moved;
+            moved.position = entry.position;
+        }
+    }
+
+    /**
+     * @return - the chunk, copied first if a view shares it.
+     */
+    private Entry[] writable(int chunk) {
+        if (chunkEpoch[chunk] != epoch) {
+            chunks[chunk] = chunks[chunk] == null ? new Entry[CHUNK] : chunks[chunk].clone();
+            chunkEpoch[chunk] = epoch;
+        }
+        return chunks[chunk];
+    }
+
+    /**
+     * The sets on the table when the view was taken. It never changes.
+     */
+    static final class View {
+
+        private final Entry[][] chunks;
+        final int size;
+
+        private View(Entry[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        Entry get(int index) {
+            return chunks[index >>> CHUNK_BITS][index & (CHUNK - 1)];
+        }
+
+        /**
+         * @return - the cards of each set, sorted.
+         */
+        List<int[]> cards() {
+            return new Column(this, false);
+        }
+
+        /**
+         * @return - the slots of the cards of each set, in the order of cards().
+         */
+        List<int[]> slots() {
+            return new Column(this, true);
+        }
+    }
+
+    /**
+     * An unmodifiable list of the card or slot arrays of a view.
+     */
+    private static final class Column extends AbstractList<int[]> implements RandomAccess {
+
+        private final View view;
+        private final boolean slots;
+
+        private Column(View view, boolean slots) {
+            this.view = view;
+            this.slots = slots;
+        }
+
+        @Override
+        public int[] get(int index) {
+            if (index < 0 || index >= view.size) throw new IndexOutOfBoundsException("index " + index);
+            Entry entry = view.get(index);
+            return slots ? entry.slots : entry.cards;
+        }
+
+        @Override
+        public int size() {
+            return view.size;
+        }
+    }
+}
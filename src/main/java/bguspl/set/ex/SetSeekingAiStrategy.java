@@ -0,0 +1,65 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Looks for a set among the cards on the table, and claims it after a human-like reaction time. When there are sets
+ * on the table, it picks one of them with probability config.aiSkill, and claims random cards otherwise.
+ */
+public class SetSeekingAiStrategy implements AiStrategy {
+
+    private final Config config;
+
+    public SetSeekingAiStrategy(Config config) {
+        this.config = config;
+    }
+
+    @Override
+    public int[] nextKeys(Table table, int player) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<int[]> sets = table.snapshot().setSlots();
+        if (sets.isEmpty()) return new int[0]; // nothing to find: wait for the table to change
+        int[] target = random.nextDouble() < config.aiSkill ? sets.get(random.nextInt(sets.size())) : randomSlots(random);
+
+        // first take back the tokens that are not on the target, then place the missing ones
+        int[] keys = new int[config.tableSize];
+        int count = 0;
+        for (int slot = 0; slot < config.tableSize; slot++)
+            if (table.hasToken(player, slot) && !contains(target, slot))
+                keys[count++] = slot;
+        for (int slot : target)
+            if (!table.hasToken(player, slot))
+                keys[count++] = slot;
+        return Arrays.copyOf(keys, count);
+    }
+
+    @Override
+    public long reactionMillis() {
+        double reaction = config.aiReactionMillis + ThreadLocalRandom.current().nextGaussian() * config.aiReactionJitterMillis;
+        return Math.max(0, Math.round(reaction));
+    }
+
+    private int[] randomSlots(ThreadLocalRandom random) {
+        int[] slots = new int[Math.min(config.featureSize, config.tableSize)];
+        for (int i = 0; i < slots.length; i++) {
+            int slot;
+            do slot = random.nextInt(config.tableSize); while (contains(slots, i, slot));
+            slots[i] = slot;
+        }
+        return slots;
+    }
+
+    private static boolean contains(int[] slots, int slot) {
+        return contains(slots, slots.length, slot);
+    }
+
+    private static boolean contains(int[] slots, int length, int slot) {
+        for (int i = 0; i < length; i++)
+            if (slots[i] == slot) return true;
+        return false;
+    }
+}
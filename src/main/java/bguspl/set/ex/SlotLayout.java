@@ -0,0 +1,55 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+
+/**
+ * The card in each slot, kept for the table snapshots. The slots are kept in chunks of CHUNK slots that published
+ * layouts share: a chunk is copied the first time it changes after a freeze() (copy-on-write), so freezing costs one
+ * reference per chunk instead of a copy of every slot. Changed by the dealer thread only.
+ */
+class SlotLayout {
+
+    static final int CHUNK_BITS = 6;
+    static final int CHUNK = 1 << CHUNK_BITS;
+
+    private final int[][] chunks;
+
+    /**
+     * chunkEpoch[i] == epoch iff chunk i was copied since the last freeze, so it may be changed in place.
+     */
+    private final int[] chunkEpoch;
+    private int epoch = 1;
+
+    /**
+     * @param tableSize - the number of slots (all empty).
+     */
+    SlotLayout(int tableSize) {
+        chunks = new int[(tableSize + CHUNK - 1) >>> CHUNK_BITS][];
+        chunkEpoch = new int[chunks.length];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk] = new int[Math.min(CHUNK, tableSize - chunk * CHUNK)];
+            Arrays.fill(chunks[chunk], -1);
+        }
+    }
+
+    /**
+     * @param slot - a slot.
+     * @param card - the card now in the slot (-1 if none).
+     */
+    void set(int slot, int card) {
+        int chunk = slot >>> CHUNK_BITS;
+        if (chunkEpoch[chunk] != epoch) {
+            chunks[chunk] = chunks[chunk].clone();
+            chunkEpoch[chunk] = epoch;
+        }
+        chunks[chunk][slot & (CHUNK - 1)] = card;
+    }
+
+    /**
+     * @return - the current layout, in chunks of CHUNK slots, that will not change (the arrays must not be modified).
+     */
+    int[][] freeze() {
+        ++epoch; // every chunk is now shared with the frozen layout
+        return chunks.clone();
+    }
+}
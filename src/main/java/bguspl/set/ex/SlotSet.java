@@ -0,0 +1,73 @@
+package bguspl.set.ex;
+
+/**
+ * A set of slots with O(1) add, remove and membership test, whose members are listed in O(size()) however large the
+ * table is (a sparse set). Not thread safe: it is used by the dealer thread only.
+ *
+ * @inv 0 <= size() <= capacity
+ */
+class SlotSet {
+
+    /**
+     * The members of the set (the first size entries), in no particular order.
+     */
+    private final int[] dense;
+
+    /**
+     * For each slot, its index in dense (meaningful only if the slot is a member).
+     */
+    private final int[] sparse;
+
+    private int size;
+
+    /**
+     * @param capacity - the number of slots (the members are 0 to capacity - 1).
+     */
+    SlotSet(int capacity) {
+        this.dense = new int[capacity];
+        this.sparse = new int[capacity];
+    }
+
+    /**
+     * @return - true iff the slot was not a member.
+     */
+    boolean add(int slot) {
+        if (contains(slot)) return false;
+        dense[size] = slot;
+        sparse[slot] = size++;
+        return true;
+    }
+
+    /**
+     * @return - true iff the slot was a member.
+     */
+    boolean remove(int slot) {
+        if (!contains(slot)) return false;
+        int last = dense[--size];
+        dense[sparse[slot]] = last;
+        sparse[last] = sparse[slot];
+        return true;
+    }
+
+    boolean contains(int slot) {
+        int index = sparse[slot];
+        return index < size && dense[index] == slot;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Copies members of the set.
+     *
+     * @param slots - the array to copy the members to.
+     * @param max   - the largest number of members to copy.
+     * @return      - the number of members copied.
+     */
+    int copyTo(int[] slots, int max) {
+        int count = Math.min(size, max);
+        System.arraycopy(dense, 0, slots, 0, count);
+        return count;
+    }
+}
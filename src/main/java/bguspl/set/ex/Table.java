@@ -2,16 +2,18 @@ package bguspl.set.ex;
 
 import bguspl.set.Env;
 
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * This class contains the data that is visible to the player.
+ * Cards are placed and removed by the dealer thread only, and read by any thread without locking: a card is entered
+ * in cardToSlot before it appears in slotToCard, and leaves slotToCard before it leaves cardToSlot, so a reader that
+ * sees a card in a slot always finds the card mapped to that slot.
  *
- * @inv slotToCard[x] == y iff cardToSlot[y] == x
+ * @inv slotToCard[x] == y iff cardToSlot[y] == x (once the dealer's placement or removal is done)
  */
 public class Table {
 
@@ -21,60 +23,91 @@ public class Table {
     private final Env env;
 
     /**
-     * Mapping between a slot and the card placed in it (null if none).
+     * Mapping between a slot and the card placed in it (-1 if none).
      */
-    protected final Integer[] slotToCard; // card per slot (if any)
+    protected final AtomicIntegerArray slotToCard; // card per slot (if any)
 
     /**
-     * Mapping between a card and the slot it is in (null if none).
+     * Mapping between a card and the slot it is in (-1 if none).
      */
-    protected final Integer[] cardToSlot; // slot per card (if any)
+    protected final AtomicIntegerArray cardToSlot; // slot per card (if any)
 
     /**
-     * players tokens slots
+     * The players' tokens: for each player, a bitmask of the slots it placed tokens on, in tokenWords longs (player p
+     * has a token on slot s iff bit s % 64 of tokens[p * tokenWords + s / 64] is set).
      */
-    protected boolean[][] playerTokensSlots;
+    protected final AtomicLongArray tokens;
+    private final int tokenWords;
 
     /**
-     * an array that represent for each player the cards he had clicked on
-     * each player has a linked list.
+     * The players holding tokens on each slot, in holderWords longs (bit p % 64 of holders[s * holderWords + p / 64] is
+     * set iff player p has a token on slot s), so that removing a card only visits the actual token holders.
+     * A player sets its bit here after its bit in tokens, and clears it after clearing its bit in tokens.
      */
-    protected LinkedList<Integer>[] cardsPlayerHasTokened;
+    protected final AtomicLongArray holders;
+    private final int holderWords;
 
+    /**
+     * The legal sets among the cards on the table, updated on every card placement and removal.
+     */
+    protected final SetIndex setIndex;
+
+    /**
+     * The empty slots, and the number of cards on the table, kept up to date by the dealer as it places and removes
+     * cards, so that neither depends on the size of the table.
+     */
+    private final SlotSet freeSlots;
+    private volatile int cardCount;
+
+    /**
+     * The card in each slot, as shared with the published snapshots.
+     */
+    private final SlotLayout layout;
 
-     /**
-     * an array that holds the locks for each slot
+    /**
+     * The latest view of the table, published after each batch of changes.
      */
-    protected final Object[] slotLocks;
+    private volatile TableSnapshot snapshot;
 
+    /**
+     * The hints of the latest snapshot, computed when they are asked for.
+     */
+    private final HintEngine hintEngine;
 
 
     /**
      * Constructor for testing.
      *
      * @param env        - the game environment objects.
-     * @param slotToCard - mapping between a slot and the card placed in it (null if none).
-     * @param cardToSlot - mapping between a card and the slot it is in (null if none).
+     * @param slotToCard - mapping between a slot and the card placed in it (-1 if none).
+     * @param cardToSlot - mapping between a card and the slot it is in (-1 if none).
      */
 
-    @SuppressWarnings("unchecked")
-    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+    public Table(Env env, AtomicIntegerArray slotToCard, AtomicIntegerArray cardToSlot) {
 
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
-        this.playerTokensSlots = new boolean[env.config.players][env.config.tableSize];
-        this.cardsPlayerHasTokened = new LinkedList[env.config.players];
-        
-        
-        for (int i = 0; i < env.config.players; i++) {
-        cardsPlayerHasTokened[i] = new LinkedList<>();
-        }
+        this.tokenWords = (env.config.tableSize + 63) / 64;
+        this.tokens = new AtomicLongArray(env.config.players * tokenWords);
+        this.holderWords = (env.config.players + 63) / 64;
+        this.holders = new AtomicLongArray(env.config.tableSize * holderWords);
 
-        this.slotLocks = new Object[env.config.tableSize];
-        for (int i = 0; i < env.config.tableSize; i++) {
-            slotLocks[i] = new Object(); // Initialize each slot object
+        this.setIndex = new SetIndex(env.util, cardToSlot, env.config.tableSize);
+        this.layout = new SlotLayout(env.config.tableSize);
+        this.hintEngine = new HintEngine(env.util);
+        this.freeSlots = new SlotSet(env.config.tableSize);
+        for (int slot = 0; slot < env.config.tableSize; slot++) {
+            int card = slotToCard.get(slot);
+            if (card == -1)
+                freeSlots.add(slot);
+            else {
+                ++cardCount;
+                layout.set(slot, card);
+                setIndex.add(card);
+            }
         }
+        publishSnapshot();
 
     }
 
@@ -85,33 +118,104 @@ public class Table {
      */
     public Table(Env env) {
 
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        this(env, emptyMapping(env.config.tableSize), emptyMapping(env.config.deckSize));
+    }
+
+    /**
+     * @param length - the number of entries.
+     * @return       - a mapping in which every entry is -1 (none).
+     */
+    public static AtomicIntegerArray emptyMapping(int length) {
+        AtomicIntegerArray mapping = new AtomicIntegerArray(length);
+        for (int i = 0; i < length; i++)
+            mapping.set(i, -1);
+        return mapping;
     }
 
     /**
      * This method prints all possible legal sets of cards that are currently on the table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
-            StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
-            int[][] features = env.util.cardsToFeatures(set);
-            System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
-        });
+        hintEngine.lines(snapshot).forEach(System.out::println);
+    }
+
+    /**
+     * @return - the slots of the cards of all the legal sets currently on the table (a copy, cached until the table
+     *           changes).
+     */
+    public BitSet hintSlots() {
+        return hintEngine.slots(snapshot);
+    }
+
+    /**
+     * @return - the latest view of the table (it does not change: call again to see later changes).
+     */
+    public TableSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publishes a new view of the table. Called after each batch of changes (by the dealer thread).
+     * The snapshot shares the layout and set chunks that did not change, so this copies one reference per 64 slots and
+     * per 64 sets on the table, plus the chunks the batch changed (the sets are not copied one by one).
+     */
+    private void publishSnapshot() {
+        TableSnapshot previous = snapshot;
+        snapshot = new TableSnapshot(previous == null ? 0 : previous.version + 1, layout.freeze(),
+                env.config.tableSize, cardCount, setIndex.view());
+    }
+
+    /**
+     * Count the number of legal sets currently on the table.
+     *
+     * @return - the number of legal sets on the table.
+     */
+    public int countSets() {
+        return setIndex.count();
+    }
+
+    /**
+     * @return - the legal sets currently on the table, each one a sorted array of card ids (a snapshot: the cards may
+     *           leave the table right after).
+     */
+    public List<int[]> sets() {
+        return snapshot.sets();
     }
 
     /**
-     * Count the number of cards currently on the table.
+     * Count the number of cards currently on the table, in O(1).
      *
      * @return - the number of cards on the table.
      */
     public int countCards() {
-        int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
-        return cards;
+        return cardCount;
+    }
+
+    /**
+     * Copies empty slots, in O(max) whatever the size of the table. Called by the dealer thread only.
+     *
+     * @param slots - the array to copy the slots to.
+     * @param max   - the largest number of slots to copy.
+     * @return      - the number of slots copied.
+     */
+    public int emptySlots(int[] slots, int max) {
+        return freeSlots.copyTo(slots, max);
+    }
+
+    /**
+     * @param slot - a slot.
+     * @return     - the card in the slot, or -1 if it is empty.
+     */
+    public int cardAt(int slot) {
+        return slotToCard.get(slot);
+    }
+
+    /**
+     * @param card - a card.
+     * @return     - the slot the card is in, or -1 if it is not on the table.
+     */
+    public int slotOf(int card) {
+        return cardToSlot.get(card);
     }
 
     /**
@@ -122,16 +226,42 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
+        placeCards(new int[]{card}, new int[]{slot}, 1);
+    }
+
+    /**
+     * Places cards on the table in several grid slots at once. The table delay is applied once and the ui is updated
+     * in a single batch. Called by the dealer thread only.
+     * @param cards - the card ids to place (the first count entries).
+     * @param slots - the slot in which each card should be placed.
+     * @param count - the number of cards to place.
+     *
+     * @post - the cards placed are on the table, in their assigned slots.
+     */
+    public void placeCards(int[] cards, int[] slots, int count) {
+        if (count == 0) return;
         try {
             Thread.sleep(env.config.tableDelayMillis);//Dealer sleeps
         } catch (InterruptedException ignored) {}
 
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
-
-        // TODO implement
-        env.ui.placeCard(card, slot);
-
+        for (int i = 0; i < count; i++) {
+            int card = cards[i];
+            int slot = slots[i];
+            int replaced = slotToCard.get(slot);
+            if (replaced != -1) {
+                clearSlot(slot, replaced);
+                setIndex.remove(replaced);
+            }
+            cardToSlot.set(card, slot); // before the card shows in the slot
+            if (!slotToCard.compareAndSet(slot, -1, card))
+                throw new IllegalStateException("slot " + slot + " was filled concurrently");
+            freeSlots.remove(slot);
+            layout.set(slot, card);
+            ++cardCount;
+            setIndex.add(card);
+        }
+        publishSnapshot();
+        env.ui.placeCards(cards, slots, count);
     }
 
     /**
@@ -139,21 +269,66 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
+        removeCards(new int[]{slot}, 1);
+    }
+
+    /**
+     * Removes the cards from several grid slots at once, with the tokens placed on them. The table delay is applied
+     * once and the ui is updated in a single batch. Called by the dealer thread only.
+     * @param slots - the slots from which to remove the cards (the first count entries).
+     * @param count - the number of slots.
+     */
+    public void removeCards(int[] slots, int count) {
+        if (count == 0) return;
         try {
             Thread.sleep(env.config.tableDelayMillis);
         } catch (InterruptedException ignored) {}
 
-        // TODO implement
-        env.ui.removeCard(slot);
-        for(int i=0; i< env.config.players;i++){
-            removeToken(i,slot);//removes the tokens that were on the card.
-            env.ui.removeToken(i, slot);
-            //cardsPlayerHasTokened[i].remove(slotToCard[slot]); 
-        } 
-        cardToSlot[slotToCard[slot]] = null;
-        slotToCard[slot] = null ;
-       
-    };
+        env.ui.removeCards(slots, count);
+        for (int i = 0; i < count; i++) {
+            int slot = slots[i];
+            int card = slotToCard.get(slot);
+            if (card != -1) {
+                clearSlot(slot, card);
+                setIndex.remove(card);
+            }
+            if (removeTokens(slot)) // after the card left: no new ones stick
+                env.ui.removeTokens(slot);
+        }
+        publishSnapshot();
+    }
+
+    /**
+     * Empties a slot: the card leaves the slot before it leaves cardToSlot.
+     */
+    private void clearSlot(int slot, int card) {
+        if (!slotToCard.compareAndSet(slot, card, -1))
+            throw new IllegalStateException("slot " + slot + " was changed concurrently");
+        cardToSlot.compareAndSet(card, slot, -1);
+        freeSlots.add(slot);
+        layout.set(slot, -1);
+        --cardCount;
+    }
+
+    /**
+     * Removes the tokens of all the players holding tokens on a slot. The ui is not updated.
+     *
+     * @return - true iff any player held a token on the slot.
+     */
+    private boolean removeTokens(int slot) {
+        boolean removed = false;
+        for (int word = 0; word < holderWords; word++) {
+            long players = holders.getAndSet(slot * holderWords + word, 0);
+            removed |= players != 0;
+            while (players != 0) {
+                int player = word * 64 + Long.numberOfTrailingZeros(players);
+                long bit = 1L << slot;
+                tokens.getAndAccumulate(tokenWord(player, slot), ~bit, (w, mask) -> w & mask);
+                players &= players - 1;
+            }
+        }
+        return removed;
+    }
 
     /**
      * Places a player token on a grid slot.
@@ -162,11 +337,19 @@ public class Table {
      */
     public void placeToken(int player, int slot) {
         // TODO implement
-        if(slotToCard[slot]!=null){
-            env.ui.placeToken(player, slot);
-            playerTokensSlots[player][slot]=true;
-            cardsPlayerHasTokened[player].add(slotToCard[slot]); // placing the card
-            env.logger.info("cardNumber:" + slotToCard[slot]);
+        int card = slotToCard.get(slot);
+        if(card!=-1){
+            long bit = 1L << slot;
+            if ((tokens.getAndAccumulate(tokenWord(player, slot), bit, (word, b) -> word | b) & bit) == 0) {
+                long holder = 1L << player;
+                holders.getAndAccumulate(holderWord(player, slot), holder, (word, b) -> word | b);
+                env.ui.placeToken(player, slot);
+                // the dealer empties a slot before it removes its tokens: if the card left meanwhile, take the token
+                // back (and erase it from the ui, in case the dealer already removed it without telling the ui)
+                if (slotToCard.get(slot) != card && !removeToken(player, slot))
+                    env.ui.removeToken(player, slot);
+            }
+            env.logger.info("cardNumber:" + card);
         }
         
     }
@@ -178,13 +361,63 @@ public class Table {
      * @return       - true iff a token was successfully removed.
      */
     public boolean removeToken(int player, int slot){
-            // TODO implement
-            if(playerTokensSlots[player][slot]=true && cardsPlayerHasTokened[player].contains(slotToCard[slot])){
+        long bit = 1L << slot;
+        if ((tokens.getAndAccumulate(tokenWord(player, slot), ~bit, (word, mask) -> word & mask) & bit) != 0) {
+            long holder = 1L << player;
+            holders.getAndAccumulate(holderWord(player, slot), ~holder, (word, mask) -> word & mask);
             env.ui.removeToken(player, slot);
-            playerTokensSlots[player][slot]=false;
-            cardsPlayerHasTokened[player].remove(slotToCard[slot]);
             return true;
         }
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * @param player - the player.
+     * @param slot   - the slot.
+     * @return       - true iff the player has a token on the slot.
+     */
+    public boolean hasToken(int player, int slot) {
+        return (tokens.get(tokenWord(player, slot)) & (1L << slot)) != 0;
+    }
+
+    /**
+     * @param player - the player.
+     * @return       - the number of tokens the player placed.
+     */
+    public int countTokens(int player) {
+        int count = 0;
+        for (int word = player * tokenWords; word < (player + 1) * tokenWords; word++)
+            count += Long.bitCount(tokens.get(word));
+        return count;
+    }
+
+    /**
+     * Copies the cards the player placed tokens on, in slot order.
+     * @param player - the player.
+     * @param cards  - the array to copy the cards to.
+     * @param offset - the index of cards to copy the first card to.
+     * @param max    - the largest number of cards to copy.
+     * @return       - the number of cards copied.
+     */
+    public int tokenedCards(int player, int[] cards, int offset, int max) {
+        int count = 0;
+        for (int word = 0; word < tokenWords && count < max; word++) {
+            long bits = tokens.get(player * tokenWords + word);
+            while (bits != 0 && count < max) {
+                int card = slotToCard.get(word * 64 + Long.numberOfTrailingZeros(bits));
+                if (card != -1)
+                    cards[offset + count++] = card;
+                bits &= bits - 1;
+            }
+        }
+        return count;
+    }
+
+    private int tokenWord(int player, int slot) {
+        return player * tokenWords + (slot >>> 6);
+    }
+
+    private int holderWord(int player, int slot) {
+        return slot * holderWords + (player >>> 6);
+    }
+}
@@ -0,0 +1,78 @@
+package bguspl.set.ex;
+
+import java.util.List;
+
+/**
+ * An immutable view of the cards on the table, published by the table after each batch of changes. Readers get a
+ * consistent view without locking, and can compare versions to tell whether anything changed.
+ */
+public final class TableSnapshot {
+
+    /**
+     * Grows by one with every published snapshot of the same table.
+     */
+    public final long version;
+
+    /**
+     * The card in each slot (-1 if none), in chunks of SlotLayout.CHUNK slots shared with other snapshots.
+     */
+    private final int[][] slotToCard;
+    private final int tableSize;
+
+    /**
+     * The number of cards on the table.
+     */
+    private final int cards;
+
+    /**
+     * The legal sets on the table, as sorted card ids and as the slots of those cards (in the same order).
+     */
+    private final List<int[]> sets;
+    private final List<int[]> setSlots;
+
+    TableSnapshot(long version, int[][] slotToCard, int tableSize, int cards, SetIndex.View sets) {
+        this.version = version;
+        this.slotToCard = slotToCard;
+        this.tableSize = tableSize;
+        this.cards = cards;
+        this.sets = sets.cards();
+        this.setSlots = sets.slots();
+    }
+
+    /**
+     * @param slot - a slot.
+     * @return     - the card in the slot, or -1 if it was empty.
+     */
+    public int cardAt(int slot) {
+        return slotToCard[slot >>> SlotLayout.CHUNK_BITS][slot & (SlotLayout.CHUNK - 1)];
+    }
+
+    /**
+     * @return - the number of slots on the table.
+     */
+    public int tableSize() {
+        return tableSize;
+    }
+
+    /**
+     * @return - the number of cards on the table.
+     */
+    public int countCards() {
+        return cards;
+    }
+
+    /**
+     * @return - the legal sets on the table, each one a sorted array of card ids (the arrays must not be modified).
+     */
+    public List<int[]> sets() {
+        return sets;
+    }
+
+    /**
+     * @return - the legal sets on the table, each one an array of the slots of the cards of sets().get(i) (the arrays
+     *           must not be modified).
+     */
+    public List<int[]> setSlots() {
+        return setSlots;
+    }
+}
@@ -0,0 +1,67 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces a computer player's key presses: presses are let through at a steady rate, with short bursts allowed up to
+ * the bucket's capacity. Not thread safe: each computer player has its own.
+ */
+class TokenBucket {
+
+    /**
+     * The rate at which the bucket fills (non-positive: no pacing at all).
+     */
+    private final double tokensPerNano;
+
+    /**
+     * The largest number of presses let through at once.
+     */
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param perSecond - the number of presses per second (non-positive: unlimited).
+     * @param capacity  - the largest number of presses let through at once.
+     */
+    TokenBucket(double perSecond, int capacity) {
+        this(perSecond, capacity, System.nanoTime());
+    }
+
+    /**
+     * @param now - the System.nanoTime() the bucket is full at.
+     */
+    TokenBucket(double perSecond, int capacity, long now) {
+        this.tokensPerNano = perSecond / 1e9;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+        this.lastRefill = now;
+    }
+
+    /**
+     * Waits until a press is allowed, and takes it.
+     */
+    void acquire() throws InterruptedException {
+        long wait;
+        while ((wait = tryAcquire(System.nanoTime())) > 0)
+            TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    /**
+     * Takes a press if one is allowed at the given time.
+     *
+     * @param now - the current System.nanoTime().
+     * @return    - 0 if the press was taken, otherwise the nanoseconds until the next press is allowed.
+     */
+    long tryAcquire(long now) {
+        if (tokensPerNano <= 0) return 0;
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
@@ -0,0 +1,141 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class GameHostTest {
+
+    /**
+     * Computer-only games with no delays, that play to the end of the deck in well under a second.
+     */
+    private static Config config() {
+        return config(new Properties());
+    }
+
+    private static Config config(Properties properties) {
+        properties.put("Simulation", "True");
+        properties.putIfAbsent("ComputerPlayers", "2");
+        return new Config(new MockLogger(), properties);
+    }
+
+    @Test
+    void games_RunIndependentlyAndReportTheirOwnResults() throws Exception {
+        Config config = config();
+        GameHost host = new GameHost(new MockLogger(), config, new UtilImpl(config), 2);
+
+        GameHost.Game[] games = new GameHost.Game[3];
+        for (int i = 0; i < games.length; ++i) {
+            games[i] = host.create(players -> mock(UserInterface.class));
+            games[i].start();
+        }
+
+        for (int i = 0; i < games.length; ++i) {
+            GameHost.Result result = games[i].result().get(30, TimeUnit.SECONDS);
+            assertEquals(games[i].id, result.gameId);
+            assertSame(games[i].dealer.stats, result.claims);
+            if (i > 0) assertNotSame(games[i - 1].dealer.stats, result.claims);
+            assertEquals(2, result.scores.length);
+            assertEquals(result.claims.sets(), Arrays.stream(result.scores).sum()); // a point per set collected
+            assertTrue(result.claims.sets() > 0);
+            int top = Arrays.stream(result.scores).max().getAsInt();
+            for (int winner : result.winners)
+                assertEquals(top, result.scores[winner]);
+        }
+        host.shutdown();
+        assertTrue(host.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void games_RunAtMostMaxRunningGamesAtOnce() throws Exception {
+        Config config = config();
+        GameHost.Game[] games = new GameHost.Game[5];
+        Set<Integer> started = ConcurrentHashMap.newKeySet(); // the ids of the games whose dealer started
+        AtomicInteger maxRunning = new AtomicInteger();
+        ThreadFactory counting = task -> new Thread(() -> {
+            String name = Thread.currentThread().getName();
+            if (name.startsWith("dealer-")) {
+                started.add(Integer.parseInt(name.substring("dealer-".length())));
+                int running = 0; // the games whose dealer started and did not finish, this one included
+                for (GameHost.Game game : games)
+                    if (started.contains(game.id) && !game.result().isDone()) ++running;
+                maxRunning.accumulateAndGet(running, Math::max);
+            }
+            task.run();
+        });
+        GameHost host = new GameHost(new MockLogger(), config, new UtilImpl(config), 2, counting);
+
+        for (int i = 0; i < games.length; ++i)
+            games[i] = host.create(players -> mock(UserInterface.class));
+        for (GameHost.Game game : games)
+            game.start();
+        host.shutdown();
+        assertTrue(host.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (GameHost.Game game : games)
+            assertTrue(game.result().isDone());
+        assertTrue(maxRunning.get() <= 2, "running games: " + maxRunning.get());
+    }
+
+    @Test
+    void game_TerminatedBeforeItStartsRunsNoPlayers() throws Exception {
+        Config config = config();
+        AtomicInteger threads = new AtomicInteger();
+        ThreadFactory counting = task -> {
+            threads.incrementAndGet();
+            return new Thread(task);
+        };
+        GameHost host = new GameHost(new MockLogger(), config, new UtilImpl(config), 1, counting);
+
+        GameHost.Game game = host.create(players -> mock(UserInterface.class));
+        game.terminate();
+        GameHost.Result result = game.start().get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, threads.get()); // the dealer's only
+        assertEquals(0, result.claims.claims());
+        assertEquals(0, game.table.countCards());
+        host.shutdown();
+        assertTrue(host.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void computerPlayer_WithFullSkillIsNeverPenalized() throws Exception {
+        Properties properties = new Properties();
+        properties.put("ComputerPlayers", "1");
+        properties.put("AiSkill", "1");
+        Config config = config(properties);
+        GameHost host = new GameHost(new MockLogger(), config, new UtilImpl(config), 4);
+
+        GameHost.Game[] games = new GameHost.Game[4];
+        for (int i = 0; i < games.length; ++i) {
+            games[i] = host.create(players -> mock(UserInterface.class));
+            games[i].start();
+        }
+        for (GameHost.Game game : games) {
+            GameHost.Result result = game.result().get(30, TimeUnit.SECONDS);
+            assertTrue(result.claims.sets() > 0);
+            assertEquals(result.claims.sets(), result.claims.claims()); // every claim was a legal set
+        }
+        host.shutdown();
+        assertTrue(host.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SimulationTest {
+
+    @Test
+    void latencyPercentile_IsZeroWithoutClaims() {
+        Simulation.Report report = new Simulation.Report(1, 1, 0, 0, new long[0]);
+
+        assertEquals(0, report.latencyPercentile(0));
+        assertEquals(0, report.latencyPercentile(50));
+        assertEquals(0, report.latencyPercentile(100));
+    }
+
+    @Test
+    void latencyPercentile_PicksTheNearestRank() {
+        long[] latencies = {10, 20, 30, 40, 50, 60, 70, 80, 90, 100};
+        Simulation.Report report = new Simulation.Report(1, 1, 10, 10, latencies);
+
+        assertEquals(10, report.latencyPercentile(0));
+        assertEquals(50, report.latencyPercentile(50));
+        assertEquals(90, report.latencyPercentile(90));
+        assertEquals(100, report.latencyPercentile(99));
+        assertEquals(100, report.latencyPercentile(100));
+    }
+
+    @Test
+    void latencyPercentile_OfASingleClaimIsThatClaim() {
+        Simulation.Report report = new Simulation.Report(1, 1, 1, 1, new long[]{42});
+
+        assertEquals(42, report.latencyPercentile(0));
+        assertEquals(42, report.latencyPercentile(100));
+    }
+}
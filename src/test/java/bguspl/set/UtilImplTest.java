@@ -0,0 +1,181 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    private static UtilImpl util(int featureSize, int featureCount) {
+        return util(featureSize, featureCount, 0);
+    }
+
+    private static UtilImpl util(int featureSize, int featureCount, int parallelSearchThreshold) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("ParallelSearchThreshold", Integer.toString(parallelSearchThreshold));
+        return new UtilImpl(new Config(new MockLogger(), properties));
+    }
+
+    private static List<Integer> range(int n) {
+        return IntStream.range(0, n).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Counts the sets in the deck by testing every combination of featureSize cards.
+     */
+    private static int bruteForceCount(Util util, List<Integer> deck, int featureSize) {
+        int[] combination = IntStream.range(0, featureSize).toArray();
+        int n = deck.size(), r = featureSize, sets = 0;
+        while (combination[r - 1] < n) {
+            if (util.testSet(Arrays.stream(combination).map(deck::get).toArray())) ++sets;
+            int t = r - 1;
+            while (t != 0 && combination[t] == n - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return sets;
+    }
+
+    @Test
+    void findSets_FullClassicDeck() {
+        UtilImpl util = util(3, 4);
+        List<int[]> sets = util.findSets(range(81), Integer.MAX_VALUE);
+
+        assertEquals(1080, sets.size());
+        assertEquals(1080, sets.stream().map(Arrays::toString).distinct().count());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+    }
+
+    @Test
+    void findSets_MatchesBruteForceForOtherFeatureSizes() {
+        for (int[] shape : new int[][]{{2, 3}, {4, 3}, {5, 2}}) {
+            UtilImpl util = util(shape[0], shape[1]);
+            List<Integer> deck = range((int) Math.pow(shape[0], shape[1]));
+            List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+
+            assertEquals(bruteForceCount(util, deck, shape[0]), sets.size());
+            sets.forEach(set -> assertTrue(util.testSet(set)));
+        }
+    }
+
+    @Test
+    void findSets_StopsAtCount() {
+        UtilImpl util = util(3, 4);
+
+        assertEquals(1, util.findSets(range(81), 1).size());
+        assertEquals(0, util.findSets(Arrays.asList(0, 1, 3, 4), Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void findSets_ParallelSearchMatchesSequential() {
+        UtilImpl sequential = util(3, 5);
+        UtilImpl parallel = util(3, 5, 12);
+        List<Integer> deck = range(243);
+
+        List<String> expected = sequential.findSets(deck, Integer.MAX_VALUE).stream().map(Arrays::toString).sorted().collect(Collectors.toList());
+        List<String> actual = parallel.findSets(deck, Integer.MAX_VALUE).stream().map(Arrays::toString).sorted().collect(Collectors.toList());
+
+        assertEquals(expected, actual);
+        assertEquals(5, parallel.findSets(deck, 5).size());
+        assertEquals(1, parallel.findSets(deck, 1).size());
+    }
+
+    @Test
+    void containsAndCountSets() {
+        UtilImpl util = util(3, 4);
+        int[] deck = IntStream.range(0, 81).toArray();
+
+        assertEquals(1080, util.countSets(deck, deck.length));
+        assertEquals(1080, util.countSets(range(81)));
+        assertTrue(util.containsSet(deck, 3)); // cards 0, 1, 2
+        assertFalse(util.containsSet(Arrays.asList(0, 1, 3, 4)));
+
+        int[] visited = {0};
+        assertFalse(util.forEachSet(deck, deck.length, set -> ++visited[0] < 7));
+        assertEquals(7, visited[0]);
+        assertEquals(1080, util(3, 4, 12).countSets(range(81)));
+        assertTrue(util(3, 4, 12).containsSet(range(81)));
+    }
+
+    @Test
+    void forEachSet_NestedSearchesKeepTheOuterOne() {
+        UtilImpl util = util(3, 4);
+        int[] deck = IntStream.range(0, 81).toArray();
+
+        int[] outer = {0};
+        assertTrue(util.forEachSet(deck, deck.length, set -> {
+            ++outer[0];
+            return util.containsSet(set, set.length) && util.forEachSetWith(set[0], deck, 3, inner -> true);
+        }));
+        assertEquals(1080, outer[0]);
+    }
+
+    @Test
+    void testSets_AgreesWithTestSet() {
+        for (int[] shape : new int[][]{{3, 4}, {4, 3}}) {
+            UtilImpl util = util(shape[0], shape[1]);
+            int k = shape[0], count = 500;
+            Random random = new Random(k);
+            int[] cards = random.ints(count * k, 0, (int) Math.pow(k, shape[1])).toArray();
+            util.findSets(range(k * 9), 100).forEach(set -> System.arraycopy(set, 0, cards, random.nextInt(count) * k, k));
+
+            BitSet valid = util.testSets(cards, k, count);
+            for (int i = 0; i < count; ++i)
+                assertEquals(util.testSet(Arrays.copyOfRange(cards, i * k, (i + 1) * k)), valid.get(i));
+            assertTrue(valid.cardinality() > 0);
+        }
+    }
+
+    @Test
+    void catalog_TracksSetsLeftInPlay() {
+        UtilImpl util = util(3, 4);
+        SetCatalog catalog = util.catalog();
+        SetCatalog.Tracker tracker = catalog.newTracker();
+
+        assertEquals(1080, catalog.size());
+        assertTrue(catalog == util.catalog());
+
+        tracker.discard(0); // every card is in 40 sets
+        assertEquals(1040, tracker.availableSets());
+        tracker.discard(0);
+        assertEquals(1040, tracker.availableSets());
+        tracker.discard(1); // the set 0, 1, 2 is already unavailable
+        assertEquals(1001, tracker.availableSets());
+
+        for (int card = 2; card < 81; ++card)
+            tracker.discard(card);
+        assertFalse(tracker.hasAvailableSet());
+    }
+
+    @Test
+    void testSet_SeparateCardsAgreeWithArray() {
+        UtilImpl util = util(3, 4);
+        for (int a = 0; a < 81; a += 7)
+            for (int b = 0; b < 81; b += 5)
+                for (int c = 0; c < 81; ++c)
+                    if (a != b && b != c && a != c)
+                        assertEquals(util.testSet(new int[]{a, b, c}), util.testSet(a, b, c));
+
+        assertTrue(util.testSet(0, 40, 80));
+        assertEquals(Arrays.asList(2, 0, 1, 2), Arrays.stream(util.cardToFeatures(59)).boxed().collect(Collectors.toList()));
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimQueueTest {
+
+    @Test
+    void offerAndPoll_KeepArrivalOrder() {
+        ClaimQueue queue = new ClaimQueue(3);
+
+        assertEquals(4, queue.capacity());
+        assertEquals(-1, queue.poll());
+        for (int player = 0; player < 4; ++player)
+            assertTrue(queue.offer(player));
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+
+        for (int player = 0; player < 4; ++player)
+            assertEquals(player, queue.poll());
+        assertTrue(queue.isEmpty());
+        assertEquals(4, queue.maxDepth());
+    }
+
+    @Test
+    void offer_ManyProducersLoseNoClaims() throws InterruptedException {
+        int producers = 4, claims = 2_000;
+        ClaimQueue queue = new ClaimQueue(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; ++p) {
+            int player = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignored) {}
+                for (int i = 0; i < claims; ++i)
+                    while (!queue.offer(player)) Thread.yield();
+            });
+            threads[p].start();
+        }
+
+        start.countDown();
+        int[] received = new int[producers];
+        for (int total = 0; total < producers * claims; ) {
+            int player = queue.poll();
+            if (player >= 0) {
+                ++received[player];
+                ++total;
+            } else Thread.yield();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        for (int count : received)
+            assertEquals(claims, count);
+        assertEquals((long) producers * claims, queue.offered());
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,43 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeckTest {
+
+    @Test
+    void draw_ReturnsEveryCardOnce() {
+        Deck deck = new Deck(81, 0);
+        BitSet drawn = new BitSet();
+        for (int i = 0; i < 81; ++i) {
+            int card = deck.draw();
+            assertFalse(drawn.get(card));
+            drawn.set(card);
+        }
+        assertTrue(deck.isEmpty());
+        assertEquals(-1, deck.draw());
+        assertEquals(81, drawn.cardinality());
+    }
+
+    @Test
+    void sameSeed_SameOrder() {
+        Deck first = new Deck(81, 42);
+        Deck second = new Deck(81, 42);
+        int[] returned = new int[3];
+        for (int i = 0; i < 3; ++i) {
+            returned[i] = first.draw();
+            assertEquals(returned[i], second.draw());
+        }
+        first.returnCards(returned, 3);
+        second.returnCards(returned, 3);
+
+        assertEquals(81, first.size());
+        while (!first.isEmpty())
+            assertEquals(first.draw(), second.draw());
+    }
+}
@@ -0,0 +1,59 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SetSeekingAiStrategyTest {
+
+    private Config config;
+    private Table table;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("AiSkill", "1");
+        properties.put("AiReactionSeconds", "0");
+        properties.put("AiReactionJitterSeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        config = new Config(logger, properties);
+        table = new Table(new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config)));
+    }
+
+    @Test
+    void nextKeys_NoSetOnTable() {
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(3, 2);
+
+        assertEquals(0, new SetSeekingAiStrategy(config).nextKeys(table, 0).length);
+    }
+
+    @Test
+    void nextKeys_ClaimsTheSetAndTakesBackOtherTokens() {
+        table.placeCard(0, 0);
+        table.placeCard(3, 1);
+        table.placeCard(1, 2);
+        table.placeCard(2, 3); // 0, 1, 2 is a set
+        table.placeToken(0, 1);
+        table.placeToken(0, 2);
+
+        int[] keys = new SetSeekingAiStrategy(config).nextKeys(table, 0);
+        assertEquals(1, keys[0]); // the token on card 3 goes first
+        int[] placed = Arrays.copyOfRange(keys, 1, keys.length);
+        Arrays.sort(placed);
+        assertArrayEquals(new int[]{0, 3}, placed);
+        assertEquals(0, new SetSeekingAiStrategy(config).reactionMillis());
+    }
+}
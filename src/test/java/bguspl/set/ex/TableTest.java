@@ -2,22 +2,33 @@ package bguspl.set.ex;
 
 import bguspl.set.Config;
 import bguspl.set.Env;
+import bguspl.set.SetCatalog;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
-    private Integer[] slotToCard;
-    private Integer[] cardToSlot;
+    private AtomicIntegerArray slotToCard;
+    private AtomicIntegerArray cardToSlot;
+    private Config config;
+    private MockLogger logger;
 
     @BeforeEach
     void setUp() {
@@ -30,36 +41,34 @@ class TableTest {
         properties.put("TableDelaySeconds", "0");
         properties.put("PlayerKeys1", "81,87,69,82");
         properties.put("PlayerKeys2", "85,73,79,80");
-        MockLogger logger = new MockLogger();
-        Config config = new Config(logger, properties);
-        slotToCard = new Integer[config.tableSize];
-        cardToSlot = new Integer[config.deckSize];
+        logger = new MockLogger();
+        config = new Config(logger, properties);
+        slotToCard = Table.emptyMapping(config.tableSize);
+        cardToSlot = Table.emptyMapping(config.deckSize);
 
         Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
     private int fillSomeSlots() {
-        slotToCard[1] = 3;
-        slotToCard[2] = 5;
-        cardToSlot[3] = 1;
-        cardToSlot[5] = 2;
+        table.placeCard(3, 1);
+        table.placeCard(5, 2);
 
         return 2;
     }
 
     private void fillAllSlots() {
-        for (int i = 0; i < slotToCard.length; ++i) {
-            slotToCard[i] = i;
-            cardToSlot[i] = i;
-        }
+        int[] cards = new int[slotToCard.length()];
+        for (int i = 0; i < cards.length; ++i)
+            cards[i] = i;
+        table.placeCards(cards, cards, cards.length);
     }
 
     private void placeSomeCardsAndAssert() throws InterruptedException {
         table.placeCard(8, 2);
 
-        assertEquals(8, (int) slotToCard[2]);
-        assertEquals(2, (int) cardToSlot[8]);
+        assertEquals(8, slotToCard.get(2));
+        assertEquals(2, cardToSlot.get(8));
     }
 
     @Test
@@ -79,7 +88,21 @@ class TableTest {
     void countCards_AllSlotsAreFilled() {
 
         fillAllSlots();
-        assertEquals(slotToCard.length, table.countCards());
+        assertEquals(slotToCard.length(), table.countCards());
+    }
+
+    @Test
+    void emptySlots_FollowPlacedAndRemovedCards() {
+        fillSomeSlots();
+        int[] slots = new int[4];
+        assertEquals(2, table.emptySlots(slots, 4));
+        assertEquals(1, table.emptySlots(slots, 1));
+
+        table.removeCard(2);
+        assertEquals(1, table.countCards());
+        assertEquals(3, table.emptySlots(slots, 4));
+        Arrays.sort(slots, 0, 3);
+        assertArrayEquals(new int[]{0, 2, 3}, Arrays.copyOf(slots, 3));
     }
 
     @Test
@@ -95,6 +118,150 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void countSets_FollowsPlacedAndRemovedCards() {
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)));
+
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(3, 2);
+        assertEquals(0, table.countSets());
+
+        table.placeCard(2, 3); // completes 0, 1, 2
+        assertEquals(1, table.countSets());
+
+        table.removeCard(1);
+        assertEquals(0, table.countSets());
+    }
+
+    @Test
+    void snapshot_PublishedAfterEachBatch() {
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)));
+        TableSnapshot empty = table.snapshot();
+        assertEquals(0, empty.countCards());
+
+        table.placeCards(new int[]{0, 1, 2}, new int[]{1, 2, 3}, 3);
+        TableSnapshot placed = table.snapshot();
+        assertEquals(empty.version + 1, placed.version);
+        assertEquals(3, placed.countCards());
+        assertEquals(1, placed.cardAt(2));
+        assertEquals(1, placed.sets().size());
+        assertArrayEquals(new int[]{1, 2, 3}, placed.setSlots().get(0));
+
+        table.removeCard(2);
+        assertEquals(placed.version + 1, table.snapshot().version);
+        assertEquals(0, table.snapshot().sets().size());
+        assertEquals(1, placed.cardAt(2)); // published snapshots do not change
+    }
+
+    @Test
+    void snapshot_KeepsItsSetsWhileTheTableChanges() {
+        Properties properties = new Properties();
+        properties.put("Rows", "9");
+        properties.put("Columns", "9");
+        properties.put("TableDelaySeconds", "0");
+        Config config = new Config(logger, properties);
+        Util util = new UtilImpl(config);
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), util));
+        int[] cards = new int[81];
+        Arrays.setAll(cards, card -> card);
+        int[] slots = cards.clone();
+        table.placeCards(cards, slots, 81);
+
+        TableSnapshot full = table.snapshot();
+        assertEquals(1080, full.sets().size());
+        List<int[]> fullSets = new LinkedList<>(full.sets());
+        for (int slot = 0; slot < 81; slot += 2)
+            table.removeCard(slot);
+
+        TableSnapshot half = table.snapshot();
+        int[] left = new int[40];
+        for (int i = 0; i < 40; i++)
+            left[i] = 2 * i + 1;
+        assertEquals(util.countSets(left, left.length), half.sets().size());
+        for (int i = 0; i < half.sets().size(); i++)
+            for (int j = 0; j < 3; j++)
+                assertEquals(half.setSlots().get(i)[j], table.slotOf(half.sets().get(i)[j]));
+
+        assertEquals(1080, full.sets().size()); // published snapshots do not change
+        for (int i = 0; i < fullSets.size(); i++)
+            assertArrayEquals(fullSets.get(i), full.sets().get(i));
+        assertEquals(0, full.cardAt(0));
+        assertEquals(-1, half.cardAt(0));
+    }
+
+    @Test
+    void hintSlots_CachedUntilTheTableChanges() {
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)));
+        table.placeCards(new int[]{0, 1, 2, 4}, new int[]{0, 1, 3, 2}, 4);
+
+        BitSet hints = table.hintSlots();
+        assertEquals(3, hints.cardinality());
+        assertFalse(hints.get(2));
+        hints.clear();
+        assertEquals(3, table.hintSlots().cardinality()); // a copy
+
+        table.removeCard(1);
+        assertTrue(table.hintSlots().isEmpty());
+    }
+
+    @Test
+    void tokens_PlacedRemovedAndCollected() {
+        fillAllSlots();
+        table.placeToken(0, 3);
+        table.placeToken(0, 1);
+        table.placeToken(1, 1);
+
+        assertTrue(table.hasToken(0, 1));
+        assertEquals(2, table.countTokens(0));
+        int[] cards = new int[4];
+        assertEquals(2, table.tokenedCards(0, cards, 1, 3));
+        assertArrayEquals(new int[]{0, 1, 3, 0}, cards);
+
+        assertTrue(table.removeToken(0, 1));
+        assertFalse(table.removeToken(0, 1));
+        assertEquals(1, table.countTokens(0));
+        assertTrue(table.hasToken(1, 1));
+    }
+
+    @Test
+    void removeCard_ClearsBothMappingsAndTokens() {
+        fillAllSlots();
+        table.placeToken(1, 2);
+        table.removeCard(2);
+
+        assertEquals(-1, slotToCard.get(2));
+        assertEquals(-1, cardToSlot.get(2));
+        assertFalse(table.hasToken(1, 2));
+        table.placeToken(0, 2); // no card: no token
+        assertFalse(table.hasToken(0, 2));
+    }
+
+    @Test
+    void removeCard_RemovesHoldersTokensInOneUiCall() {
+        fillAllSlots();
+        int[] uiCalls = new int[2];
+        Table table = new Table(new Env(logger, config, new MockUserInterface() {
+            @Override
+            public void removeTokens(int slot) { uiCalls[0]++; }
+            @Override
+            public void removeToken(int player, int slot) { uiCalls[1]++; }
+        }, new MockUtil()), slotToCard, cardToSlot);
+        table.placeToken(0, 2);
+        table.placeToken(1, 2);
+        table.placeToken(1, 3);
+        table.removeCard(2);
+
+        assertFalse(table.hasToken(0, 2));
+        assertFalse(table.hasToken(1, 2));
+        assertTrue(table.hasToken(1, 3));
+        assertEquals(1, uiCalls[0]);
+        assertEquals(0, uiCalls[1]);
+
+        table.removeCard(0); // no tokens: no ui call
+        assertEquals(1, uiCalls[0]);
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -140,6 +307,11 @@ class TableTest {
 
         @Override
         public List<int[]> findSets(List<Integer> deck, int count) {
+            return new LinkedList<>();
+        }
+
+        @Override
+        public SetCatalog catalog() {
             return null;
         }
 
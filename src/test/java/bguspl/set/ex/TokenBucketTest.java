@@ -0,0 +1,46 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void tryAcquire_LetsABurstThroughUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 3, 0);
+
+        for (int press = 0; press < 3; ++press)
+            assertEquals(0, bucket.tryAcquire(0));
+        long wait = bucket.tryAcquire(0);
+        assertTrue(wait > 0.09 * SECOND && wait <= 0.11 * SECOND, "waited " + wait);
+    }
+
+    @Test
+    void tryAcquire_RefillsAtTheConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(10, 3, 0);
+        for (int press = 0; press < 3; ++press)
+            bucket.tryAcquire(0);
+
+        assertTrue(bucket.tryAcquire(SECOND / 20) > 0); // half a press refilled
+        assertEquals(0, bucket.tryAcquire(SECOND / 10 + 1));
+        assertTrue(bucket.tryAcquire(SECOND / 10 + 1) > 0);
+
+        // a long pause refills no more than the capacity
+        long later = 10 * SECOND;
+        for (int press = 0; press < 3; ++press)
+            assertEquals(0, bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    @Test
+    void tryAcquire_IsUnlimitedWithoutARate() {
+        TokenBucket bucket = new TokenBucket(0, 3, 0);
+
+        for (int press = 0; press < 100; ++press)
+            assertEquals(0, bucket.tryAcquire(0));
+    }
+}